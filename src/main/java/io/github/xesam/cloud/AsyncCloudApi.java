@@ -0,0 +1,53 @@
+package io.github.xesam.cloud;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步版本的 CloudApi，返回的 CompletableFuture 不会异常结束，失败信息通过 CloudResponse 返回
+ */
+public interface AsyncCloudApi {
+    /**
+     * 新增设备
+     */
+    CompletableFuture<CloudResponse<Boolean>> addDevice(Device device);
+
+    /**
+     * 删除设备
+     */
+    CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device);
+
+    /**
+     * 查询设备信息
+     */
+    CompletableFuture<CloudResponse<Device>> queryDevice(Device device);
+
+    /**
+     * 部分更新设备信息，设备不支持的属性会直接忽略
+     */
+    CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device);
+
+    /**
+     * 打印小票订单，如果设备不支持，会直接返回失败
+     */
+    CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order);
+
+    /**
+     * 打印标签订单，如果设备不支持，会直接返回失败
+     */
+    CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order);
+
+    /**
+     * 查询指定订单的打印情况，Order 必须要指定 id
+     */
+    CompletableFuture<CloudResponse<Order>> queryOrder(Order order);
+
+    /**
+     * 查询打印机的订单信息
+     */
+    CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption);
+
+    /**
+     * 清空指定设备的打印队列
+     */
+    CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device);
+}
@@ -0,0 +1,12 @@
+package io.github.xesam.cloud;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncRequestClient<T> {
+    CompletableFuture<CloudResponse<T>> httpGet(String url, Map<String, String> params, Map<String, String> headers);
+    CompletableFuture<CloudResponse<T>> httpPost(String url, String body, Map<String, String> headers);
+    CompletableFuture<CloudResponse<T>> httpPost(String url, Map<String, String> formBody, Map<String, String> headers);
+    CompletableFuture<CloudResponse<T>> httpDelete(String url, Map<String, String> params, Map<String, String> headers);
+    CompletableFuture<CloudResponse<T>> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers);
+}
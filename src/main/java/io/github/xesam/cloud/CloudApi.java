@@ -1,5 +1,8 @@
 package io.github.xesam.cloud;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface CloudApi {
     /**
      * 新增设备
@@ -11,6 +14,30 @@ public interface CloudApi {
      */
     CloudResponse<Boolean> deleteDevice(Device device);
 
+    /**
+     * 批量新增设备，结果与 devices 一一对应，默认逐台调用 addDevice
+     */
+    default List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            CloudResponse<Boolean> response = this.addDevice(device);
+            responses.add(response.isSuccess() ? CloudResponse.ofSuccess(device) : CloudResponse.ofFail(response));
+        }
+        return responses;
+    }
+
+    /**
+     * 批量删除设备，结果与 devices 一一对应，默认逐台调用 deleteDevice
+     */
+    default List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            CloudResponse<Boolean> response = this.deleteDevice(device);
+            responses.add(response.isSuccess() ? CloudResponse.ofSuccess(device) : CloudResponse.ofFail(response));
+        }
+        return responses;
+    }
+
     /**
      * 查询设备信息
      */
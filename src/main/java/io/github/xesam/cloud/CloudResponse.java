@@ -1,6 +1,44 @@
 package io.github.xesam.cloud;
 
 public class CloudResponse<T> {
+    /**
+     * 失败的原因，用于判断能否安全重试
+     */
+    public enum FailReason {
+        /**
+         * 厂商返回的业务错误，或者无法分类的失败
+         */
+        UNKNOWN,
+        /**
+         * 请求没有发出，例如连接失败，任何接口都可以重试
+         */
+        NOT_SENT,
+        /**
+         * 请求已经发出但没有得到响应，例如读超时、连接中断，厂商可能已经处理
+         */
+        AMBIGUOUS,
+        /**
+         * 厂商限流，HTTP 429 或者厂商提示请求过于频繁
+         */
+        THROTTLED,
+        /**
+         * HTTP 5xx
+         */
+        SERVER_ERROR,
+        /**
+         * 其他非 200 的 HTTP 状态
+         */
+        HTTP_STATUS,
+        /**
+         * 熔断器打开，请求没有发出
+         */
+        CIRCUIT_OPEN,
+        /**
+         * 本地的限流或者并发限制拒绝，请求没有发出，厂商不知道这次请求
+         */
+        LOCALLY_REJECTED
+    }
+
     public static <T> CloudResponse<T> ofSuccess(T body) {
         CloudResponse<T> res = new CloudResponse<>(true);
         res.setSuccessEntity(body);
@@ -8,14 +46,27 @@ public class CloudResponse<T> {
     }
 
     public static <T> CloudResponse<T> ofFail(String message) {
+        return ofFail(message, FailReason.UNKNOWN);
+    }
+
+    public static <T> CloudResponse<T> ofFail(String message, FailReason reason) {
         CloudResponse<T> res = new CloudResponse<>(false);
         res.setFailMessage(message);
+        res.reason = reason;
         return res;
     }
 
+    /**
+     * 转换失败结果的类型，保留失败信息与原因
+     */
+    public static <T> CloudResponse<T> ofFail(CloudResponse<?> failed) {
+        return ofFail(failed.getFailMessage(), failed.reason == null ? FailReason.UNKNOWN : failed.reason);
+    }
+
     private final boolean _success;
     private String message;
     private T entity;
+    private FailReason reason;
 
     public CloudResponse(boolean success) {
         this._success = success;
@@ -29,6 +80,13 @@ public class CloudResponse<T> {
         return message;
     }
 
+    /**
+     * 成功时返回 null
+     */
+    public FailReason getFailReason() {
+        return reason;
+    }
+
     CloudResponse<T> setFailMessage(String message) {
         this.message = message;
         return this;
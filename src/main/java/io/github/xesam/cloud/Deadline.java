@@ -0,0 +1,73 @@
+package io.github.xesam.cloud;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 一次调用的截止时间，按 System.nanoTime 计算。
+ * 通过 call 绑定到当前线程后，RequestClient 用剩余时间作为超时时间，已经过期的请求不会发出，直接返回 FailReason.NOT_SENT。
+ * 异步接口在调用线程上读取截止时间，因此需要在 call 中发起调用，而不是在返回的 CompletableFuture 上
+ */
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * 当前线程绑定的截止时间，没有时返回 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public long remainingNanos() {
+        return this.deadlineNanos - System.nanoTime();
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(this.remainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return this.remainingNanos() <= 0;
+    }
+
+    /**
+     * 返回两者中较早的截止时间，other 为 null 时返回自身
+     */
+    public Deadline min(Deadline other) {
+        return other == null || this.deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /**
+     * 在当前线程绑定这个截止时间后执行 call；已经绑定了更早的截止时间时继续使用更早的那个
+     */
+    public <T> T call(Supplier<T> call) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this.min(previous));
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{" +
+                "remainingMillis=" + remaining(TimeUnit.MILLISECONDS) +
+                '}';
+    }
+}
@@ -107,6 +107,22 @@ public class Device {
         return this;
     }
 
+    /**
+     * 复制一份设备信息，查询接口会修改传入的 Device，需要保留原对象时先复制
+     */
+    public Device copy() {
+        Device device = new Device(this.sn);
+        device.key = this.key;
+        device.name = this.name;
+        device.cardno = this.cardno;
+        device.online = this.online;
+        device.status = this.status;
+        device.cutMode = this.cutMode;
+        device.voice = this.voice;
+        device.volume = this.volume;
+        return device;
+    }
+
     @Override
     public String toString() {
         return "Device{" +
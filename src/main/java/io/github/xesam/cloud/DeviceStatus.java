@@ -0,0 +1,56 @@
+package io.github.xesam.cloud;
+
+/**
+ * 一次设备状态查询的不可变结果，查询失败时 failMessage 不为空
+ */
+public final class DeviceStatus {
+    private final String deviceSn;
+    private final boolean online;
+    private final Device.Status status;
+    private final String failMessage;
+
+    private DeviceStatus(String deviceSn, boolean online, Device.Status status, String failMessage) {
+        this.deviceSn = deviceSn;
+        this.online = online;
+        this.status = status;
+        this.failMessage = failMessage;
+    }
+
+    public static DeviceStatus of(Device device) {
+        return new DeviceStatus(device.getSn(), device.isOnline(), device.getStatus(), null);
+    }
+
+    public static DeviceStatus ofFail(String deviceSn, String failMessage) {
+        return new DeviceStatus(deviceSn, false, null, failMessage == null ? "" : failMessage);
+    }
+
+    public String getDeviceSn() {
+        return deviceSn;
+    }
+
+    public boolean isSuccess() {
+        return failMessage == null;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public Device.Status getStatus() {
+        return status;
+    }
+
+    public String getFailMessage() {
+        return failMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceStatus{" +
+                "deviceSn='" + deviceSn + '\'' +
+                ", online=" + online +
+                ", status=" + status +
+                ", failMessage='" + failMessage + '\'' +
+                '}';
+    }
+}
@@ -1,62 +1,214 @@
 package io.github.xesam.cloud;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * 签名用的摘要工具，摘要实例、编码缓冲与十六进制缓冲都按线程复用，除结果字符串外不再分配
+ */
 public final class MessageDigests {
+    private static final char[] LOWER_HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final ThreadLocal<Hasher> SHA1_HASHER = ThreadLocal.withInitial(() -> new Hasher("SHA-1", LOWER_HEX_DIGITS));
+    private static final ThreadLocal<Hasher> MD5_HASHER = ThreadLocal.withInitial(() -> new Hasher("MD5", UPPER_HEX_DIGITS));
+
+    private MessageDigests() {
+    }
+
+    private static MessageDigest getInstance(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CloudException(e);
+        }
+    }
+
     public static String SHA1(String message) {
         if (null == message || 0 == message.length()) {
             return null;
         }
-        char[] hexDigits = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
-        try {
-            MessageDigest mdTemp = MessageDigest.getInstance("SHA1");
-            mdTemp.update(message.getBytes(StandardCharsets.UTF_8));
-            byte[] md = mdTemp.digest();
-            int j = md.length;
-            char[] buf = new char[j * 2];
-            int k = 0;
-            for (byte byte0 : md) {
-                buf[k++] = hexDigits[byte0 >>> 4 & 0xf];
-                buf[k++] = hexDigits[byte0 & 0xf];
-            }
-            return new String(buf);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        return "";
+        return SHA1Hasher().update(message).toHex();
     }
 
     public static String MD5(String message) {
-        String md5Str = "";
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] md5Bytes = md.digest(message.getBytes());
-            md5Str = bytes2Hex(md5Bytes);
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (null == message) {
+            return "";
         }
-        return md5Str.toUpperCase();
+        return MD5Hasher().update(message).toHex();
     }
 
-    private static String bytes2Hex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        int temp;
-        try {
-            for (byte aByte : bytes) {
-                temp = aByte;
-                if (temp < 0) {
-                    temp += 256;
-                }
-                if (temp < 16) {
-                    result.append("0");
+    /**
+     * 当前线程的 SHA1 摘要，结果为小写十六进制，在 toHex() 之前不能交给其他线程
+     */
+    public static Hasher SHA1Hasher() {
+        return SHA1_HASHER.get().reset(null);
+    }
+
+    /**
+     * 当前线程的 MD5 摘要，结果为大写十六进制，在 toHex() 之前不能交给其他线程
+     */
+    public static Hasher MD5Hasher() {
+        return MD5_HASHER.get().reset(null);
+    }
+
+    /**
+     * 对固定前缀预先计算摘要状态，每次签名只需要摘要后缀部分
+     */
+    public static PrefixDigest SHA1Prefix(String prefix) {
+        return new PrefixDigest(SHA1_HASHER, "SHA-1", prefix);
+    }
+
+    /**
+     * 增量计算摘要，字符串按 UTF-8 编码后分段写入摘要
+     */
+    public static final class Hasher {
+        private static final int BUFFER_SIZE = 256;
+
+        private final MessageDigest engine;
+        private final char[] hexDigits;
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private final byte[] result;
+        private final char[] hex;
+        private MessageDigest digest;
+        private int count;
+
+        private Hasher(String algorithm, char[] hexDigits) {
+            this.engine = getInstance(algorithm);
+            this.hexDigits = hexDigits;
+            this.result = new byte[this.engine.getDigestLength()];
+            this.hex = new char[this.result.length * 2];
+        }
+
+        private Hasher reset(MessageDigest digest) {
+            this.engine.reset();
+            this.digest = digest == null ? this.engine : digest;
+            this.count = 0;
+            return this;
+        }
+
+        private void write(int b) {
+            if (this.count == BUFFER_SIZE) {
+                this.digest.update(this.bytes, 0, BUFFER_SIZE);
+                this.count = 0;
+            }
+            this.bytes[this.count++] = (byte) b;
+        }
+
+        public Hasher update(char c) {
+            if (c < 0x80) {
+                this.write(c);
+            } else if (c < 0x800) {
+                this.write(0xC0 | (c >> 6));
+                this.write(0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 单独出现的代理字符与 String.getBytes(UTF_8) 一致，写作 '?'
+                this.write('?');
+            } else {
+                this.write(0xE0 | (c >> 12));
+                this.write(0x80 | ((c >> 6) & 0x3F));
+                this.write(0x80 | (c & 0x3F));
+            }
+            return this;
+        }
+
+        public Hasher update(CharSequence text) {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    this.write(0xF0 | (codePoint >> 18));
+                    this.write(0x80 | ((codePoint >> 12) & 0x3F));
+                    this.write(0x80 | ((codePoint >> 6) & 0x3F));
+                    this.write(0x80 | (codePoint & 0x3F));
+                } else {
+                    this.update(c);
                 }
-                result.append(Integer.toHexString(temp));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return this;
+        }
+
+        public Hasher update(long value) {
+            if (value < 0) {
+                this.write('-');
+            } else {
+                value = -value;
+            }
+            // 以负数累计，避免 Long.MIN_VALUE 取反溢出
+            long divisor = 1;
+            while (value / divisor <= -10) {
+                divisor *= 10;
+            }
+            while (divisor > 0) {
+                this.write((int) ('0' - value / divisor));
+                value %= divisor;
+                divisor /= 10;
+            }
+            return this;
+        }
+
+        public String toHex() {
+            if (this.count > 0) {
+                this.digest.update(this.bytes, 0, this.count);
+                this.count = 0;
+            }
+            try {
+                this.digest.digest(this.result, 0, this.result.length);
+            } catch (DigestException e) {
+                throw new CloudException(e);
+            } finally {
+                this.digest = this.engine;
+            }
+            int k = 0;
+            for (byte b : this.result) {
+                this.hex[k++] = this.hexDigits[b >>> 4 & 0xf];
+                this.hex[k++] = this.hexDigits[b & 0xf];
+            }
+            return new String(this.hex);
+        }
+    }
+
+    /**
+     * 保存前缀摘要后的状态，签名时复制该状态继续摘要后缀，模板本身不再修改，可以在线程之间共享
+     */
+    public static final class PrefixDigest {
+        private final ThreadLocal<Hasher> hasher;
+        private final String prefix;
+        private final MessageDigest template;
+
+        private PrefixDigest(ThreadLocal<Hasher> hasher, String algorithm, String prefix) {
+            this.hasher = hasher;
+            this.prefix = prefix;
+            MessageDigest template = getInstance(algorithm);
+            template.update(prefix.getBytes(StandardCharsets.UTF_8));
+            try {
+                template.clone();
+            } catch (CloneNotSupportedException e) {
+                template = null;
+            }
+            this.template = template;
+        }
+
+        private Hasher start() {
+            Hasher hasher = this.hasher.get();
+            if (this.template == null) {
+                return hasher.reset(null).update(this.prefix);
+            }
+            try {
+                return hasher.reset((MessageDigest) this.template.clone());
+            } catch (CloneNotSupportedException e) {
+                return hasher.reset(null).update(this.prefix);
+            }
+        }
+
+        public String sign(long suffix) {
+            return this.start().update(suffix).toHex();
+        }
+
+        public String sign(String suffix) {
+            return this.start().update(suffix).toHex();
         }
-        return result.toString();
     }
 }
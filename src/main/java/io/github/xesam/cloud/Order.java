@@ -80,6 +80,21 @@ public class Order {
         return this;
     }
 
+    /**
+     * 复制一份订单信息，查询接口会修改传入的 Order，需要保留原对象时先复制
+     */
+    public Order copy() {
+        Order order = new Order();
+        order.id = this.id;
+        order.content = this.content;
+        order.expiredEpochSecond = this.expiredEpochSecond;
+        order.copies = this.copies;
+        order.printed = this.printed;
+        order.createTime = this.createTime;
+        order.printTime = this.printTime;
+        return order;
+    }
+
     @Override
     public String toString() {
         return "Order{" +
@@ -0,0 +1,11 @@
+package io.github.xesam.cloud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 直接把请求体写成字节，由 RequestClient 决定写入的缓冲，避免先生成完整的 String
+ */
+public interface RequestBody {
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,20 @@
+package io.github.xesam.cloud;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 把请求参数编码为 JSON 请求体
+ */
+public interface RequestEncoder {
+    String encode(Map<String, Object> data);
+
+    /**
+     * 按 UTF-8 直接写入 out，默认实现先编码为 String，实现类可以覆盖为直接写字节
+     */
+    default void encode(Map<String, Object> data, OutputStream out) throws IOException {
+        out.write(this.encode(data).getBytes(StandardCharsets.UTF_8));
+    }
+}
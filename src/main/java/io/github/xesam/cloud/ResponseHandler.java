@@ -0,0 +1,11 @@
+package io.github.xesam.cloud;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 直接从响应体的字节流中解码结果，避免先转换为 String
+ */
+public interface ResponseHandler<R> {
+    R handle(InputStream content) throws IOException;
+}
@@ -1,5 +1,23 @@
 package io.github.xesam.cloud;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
 public interface ResponseParser {
     <T> T parse(String responseString, Class<T> klass);
+
+    /**
+     * 从响应流解析，默认实现先读取为 String，实现类可以覆盖为直接从字节流解析
+     */
+    default <T> T parse(InputStream responseStream, Class<T> klass) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int read;
+        while ((read = responseStream.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return this.parse(new String(buffer.toByteArray(), StandardCharsets.UTF_8), klass);
+    }
 }
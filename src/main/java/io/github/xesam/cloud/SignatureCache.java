@@ -0,0 +1,49 @@
+package io.github.xesam.cloud;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 按秒缓存 SHA1(appId + secret + epochSecond) 签名，同一账号同一秒内的请求共用一次摘要结果。
+ * 读写都是无锁的，秒数前进时替换缓存，落后的秒数只计算不覆盖。
+ * 缓存由各个 CloudApi 实例持有，不在进程内全局保存账号密钥，实例回收后缓存随之回收
+ */
+public final class SignatureCache {
+    private static final class Signature {
+        private final long epochSecond;
+        private final String value;
+
+        private Signature(long epochSecond, String value) {
+            this.epochSecond = epochSecond;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 创建 cloudAuth 的签名缓存，调用方自己持有
+     */
+    public static SignatureCache SHA1(CloudAuth cloudAuth) {
+        return new SignatureCache(MessageDigests.SHA1Prefix(cloudAuth.getAppId() + cloudAuth.getSecret()));
+    }
+
+    private final MessageDigests.PrefixDigest prefixDigest;
+    private final AtomicReference<Signature> latest = new AtomicReference<>();
+
+    SignatureCache(MessageDigests.PrefixDigest prefixDigest) {
+        this.prefixDigest = prefixDigest;
+    }
+
+    public String sign(long epochSecond) {
+        Signature current = this.latest.get();
+        if (current != null && current.epochSecond == epochSecond) {
+            return current.value;
+        }
+        Signature signature = new Signature(epochSecond, this.prefixDigest.sign(epochSecond));
+        while (current == null || current.epochSecond < epochSecond) {
+            if (this.latest.compareAndSet(current, signature)) {
+                break;
+            }
+            current = this.latest.get();
+        }
+        return signature.value;
+    }
+}
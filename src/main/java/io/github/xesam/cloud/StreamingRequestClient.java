@@ -0,0 +1,15 @@
+package io.github.xesam.cloud;
+
+import java.util.Map;
+
+/**
+ * 支持直接从响应流解码的 RequestClient
+ */
+public interface StreamingRequestClient extends RequestClient<String> {
+    <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler);
+    <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, ResponseHandler<R> handler);
+    <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler);
+    <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, ResponseHandler<R> handler);
+    <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler);
+    <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler);
+}
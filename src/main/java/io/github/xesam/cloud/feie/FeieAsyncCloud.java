@@ -0,0 +1,73 @@
+package io.github.xesam.cloud.feie;
+
+import io.github.xesam.cloud.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FeieCloud 的异步视图，签名和解析逻辑与 FeieCloud 保持一致
+ */
+class FeieAsyncCloud implements AsyncCloudApi {
+    private final FeieCloud cloud;
+
+    FeieAsyncCloud(FeieCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> addDevice(Device device) {
+        return cloud.requestAsync("Open_printerAddlist", cloud.createAddDeviceData(device), DevicesResponse.class)
+                .thenApply(cloud::createDevicesResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device) {
+        return cloud.requestAsync("Open_printerDelList", cloud.createDeleteDeviceData(device), DevicesResponse.class)
+                .thenApply(cloud::createDevicesResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Device>> queryDevice(Device device) {
+        return cloud.requestAsync("Open_queryPrinterStatus", cloud.createQueryDeviceData(device), StringResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceResponse(response, device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device) {
+        return cloud.requestAsync("Open_printerEdit", cloud.createUpdateDeviceData(device), BoolResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+
+    private CompletableFuture<CloudResponse<Order>> printOrder(String apiName, Device device, Order order) {
+        return cloud.requestAsync(apiName, cloud.createPrintOrderData(device, order), StringResponse.class)
+                .thenApply(response -> cloud.createPrintOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order) {
+        return this.printOrder("Open_printMsg", device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order) {
+        return this.printOrder("Open_printLabelMsg", device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> queryOrder(Order order) {
+        return cloud.requestAsync("Open_queryOrderState", cloud.createQueryOrderData(order), BoolResponse.class)
+                .thenApply(response -> cloud.createQueryOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return cloud.requestAsync("Open_queryOrderInfoByDate", cloud.createQueryDeviceOrdersData(device, queryOption), DeviceOrderStatResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceOrdersResponse(response, device, queryOption));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device) {
+        return cloud.requestAsync("Open_delPrinterSqs", cloud.createClearDeviceOrdersData(device), BoolResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+}
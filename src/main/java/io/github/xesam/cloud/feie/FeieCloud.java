@@ -2,15 +2,36 @@ package io.github.xesam.cloud.feie;
 
 
 import io.github.xesam.cloud.*;
+import io.github.xesam.cloud.simple.JacksonCodec;
 import io.github.xesam.cloud.simple.SimpleCloud;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 public class FeieCloud extends SimpleCloud implements CloudApi {
 
+    private static final Map<String, String> REQUEST_HEADERS = Collections.singletonMap("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+
+    static {
+        JacksonCodec.getDefault().prepare(BoolResponse.class, StringResponse.class, DevicesResponse.class, DeviceOrderStatResponse.class);
+        FeieResponseDecoders.registerTo(StreamingResponseParser.getDefault());
+    }
+
+    /**
+     * Open_printerAddlist 单次最多添加 100 台，删除与之保持一致
+     */
+    static final int MAX_DEVICES_PER_REQUEST = 100;
+
     private String backurl;
+    private final SignatureCache signatureCache;
+    private final FeieAsyncCloud asyncCloud = new FeieAsyncCloud(this);
 
     public FeieCloud(CloudAuth cloudAuth) {
         this(cloudAuth, null);
@@ -18,6 +39,7 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
 
     public FeieCloud(CloudAuth cloudAuth, String backurl) {
         super(cloudAuth);
+        this.signatureCache = SignatureCache.SHA1(cloudAuth);
         this.setBackUrl(backurl).setUrlRewriter(url -> "https://api.feieyun.cn/Api/Open/" + url);
     }
 
@@ -26,6 +48,11 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
         return this;
     }
 
+    @Override
+    public AsyncCloudApi async() {
+        return this.asyncCloud;
+    }
+
     private String getValue(String value) {
         if (value == null) {
             return "";
@@ -33,44 +60,61 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
         return value;
     }
 
-    private Map<String, String> createRequestHeaders() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        return headers;
-    }
-
-    private CloudResponse<String> request(String apiName, Map<String, String> data) {
-        String epochSecond = this.cloudClock.getEpochSecond() + "";
+    private Map<String, String> fullfill(String apiName, Map<String, String> data) {
+        long epochSecond = this.cloudClock.getEpochSecond();
         data.put("user", this.cloudAuth.getAppId());
-        data.put("stime", epochSecond);
-        data.put("sig", MessageDigests.SHA1(this.cloudAuth.getAppId() + this.cloudAuth.getSecret() + epochSecond));
+        data.put("stime", String.valueOf(epochSecond));
+        data.put("sig", this.signatureCache.sign(epochSecond));
         data.put("apiname", apiName);
         data.entrySet().removeIf(ele -> Objects.isNull(ele.getValue()) || ele.getValue().trim().isEmpty());
-        return this.requestClient.httpPost(this.urlRewriter.getUrl(""), data, this.createRequestHeaders());
+        return data;
+    }
+
+    private <R extends VendorResponse<?>> CloudResponse<R> request(String apiName, Map<String, String> data, Class<R> klass) {
+        if (!this.acquirePermit(apiName)) {
+            return ofRateLimited(apiName);
+        }
+        Map<String, String> reqData = this.fullfill(apiName, data);
+        CloudResponse<R> response = this.withTimeout(apiName, () -> this.httpPost(this.getUrl(""), reqData, REQUEST_HEADERS, klass));
+        this.feedback(apiName, response);
+        return response;
+    }
+
+    <R extends VendorResponse<?>> CompletableFuture<CloudResponse<R>> requestAsync(String apiName, Map<String, String> data, Class<R> klass) {
+        if (!this.tryAcquirePermit(apiName)) {
+            return CompletableFuture.completedFuture(ofRateLimited(apiName));
+        }
+        Map<String, String> reqData = this.fullfill(apiName, data);
+        return this.withTimeoutAsync(apiName, () -> this.getAsyncRequestClient().httpPost(this.getUrl(""), reqData, REQUEST_HEADERS))
+                .thenApply(response -> {
+                    CloudResponse<R> parsed = this.parseResponse(response, klass);
+                    this.feedback(apiName, parsed);
+                    return parsed;
+                });
     }
 
     private boolean checkVendorResponse(VendorResponse<?> vendorResponse) {
         return vendorResponse != null && vendorResponse.isOK();
     }
 
-    private CloudResponse<Boolean> createBoolResponse(CloudResponse<String> requestResponse) {
+    CloudResponse<Boolean> createBoolResponse(CloudResponse<BoolResponse> requestResponse) {
         if (!requestResponse.isSuccess()) {
-            return CloudResponse.ofFail(requestResponse.getFailMessage());
+            return CloudResponse.ofFail(requestResponse);
         }
-        BoolResponse vendorResponse = responseParser.parse(requestResponse.getSuccessEntity(), BoolResponse.class);
+        BoolResponse vendorResponse = requestResponse.getSuccessEntity();
         if (this.checkVendorResponse(vendorResponse)) {
             return CloudResponse.ofSuccess(true);
         }
-        return CloudResponse.ofFail(vendorResponse.msg);
+        return vendorResponse.toFail();
     }
 
-    private CloudResponse<Boolean> createDevicesResponse(CloudResponse<String> requestResponse) {
+    CloudResponse<Boolean> createDevicesResponse(CloudResponse<DevicesResponse> requestResponse) {
         if (!requestResponse.isSuccess()) {
-            return CloudResponse.ofFail(requestResponse.getFailMessage());
+            return CloudResponse.ofFail(requestResponse);
         }
-        DevicesResponse devicesResponse = responseParser.parse(requestResponse.getSuccessEntity(), DevicesResponse.class);
+        DevicesResponse devicesResponse = requestResponse.getSuccessEntity();
         if (!this.checkVendorResponse(devicesResponse)) {
-            return CloudResponse.ofFail(devicesResponse.msg);
+            return devicesResponse.toFail();
         }
         if (devicesResponse.data.ok.size() > 0) {
             return CloudResponse.ofSuccess(true);
@@ -88,39 +132,127 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
         );
     }
 
-    @Override
-    public CloudResponse<Boolean> addDevice(Device device) {
+    Map<String, String> createAddDeviceData(Device device) {
         Map<String, String> data = new HashMap<>();
         String printerContent = this.getDevicePrinterContent(device);
         data.put("printerContent", printerContent);
-        CloudResponse<String> response = this.request("Open_printerAddlist", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> addDevice(Device device) {
+        CloudResponse<DevicesResponse> response = this.request("Open_printerAddlist", this.createAddDeviceData(device), DevicesResponse.class);
         return this.createDevicesResponse(response);
     }
 
+    private static boolean isEntryOf(String entry, String sn) {
+        if (entry == null || !entry.startsWith(sn)) {
+            return false;
+        }
+        if (entry.length() == sn.length()) {
+            return true;
+        }
+        char next = entry.charAt(sn.length());
+        return !(next >= '0' && next <= '9') && !(next >= 'a' && next <= 'z') && !(next >= 'A' && next <= 'Z');
+    }
+
+    private static String findEntry(List<String> entries, String sn) {
+        if (entries == null) {
+            return null;
+        }
+        for (String entry : entries) {
+            if (isEntryOf(entry, sn)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ok 与 no 中的每一项都以设备编号开头，按编号对应回每台设备
+     */
+    List<CloudResponse<Device>> createDevicesResponses(CloudResponse<DevicesResponse> requestResponse, List<Device> devices) {
+        if (!requestResponse.isSuccess()) {
+            return failAll(devices, requestResponse.getFailMessage());
+        }
+        DevicesResponse devicesResponse = requestResponse.getSuccessEntity();
+        if (!this.checkVendorResponse(devicesResponse)) {
+            return failAll(devices, devicesResponse == null ? "invalid response" : devicesResponse.msg);
+        }
+        if (devicesResponse.data == null) {
+            return failAll(devices, "empty response data");
+        }
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            String sn = this.getDeviceSn(device);
+            if (findEntry(devicesResponse.data.ok, sn) != null) {
+                responses.add(CloudResponse.ofSuccess(device));
+                continue;
+            }
+            String failEntry = findEntry(devicesResponse.data.no, sn);
+            responses.add(CloudResponse.ofFail(failEntry == null ? "no result for " + sn : failEntry));
+        }
+        return responses;
+    }
+
+    Map<String, String> createAddDevicesData(List<Device> devices) {
+        Map<String, String> data = new HashMap<>();
+        data.put("printerContent", devices.stream().map(this::getDevicePrinterContent).collect(Collectors.joining("\n")));
+        return data;
+    }
+
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.requestInChunks(devices, MAX_DEVICES_PER_REQUEST, chunk -> {
+            CloudResponse<DevicesResponse> response = this.request("Open_printerAddlist", this.createAddDevicesData(chunk), DevicesResponse.class);
+            return this.createDevicesResponses(response, chunk);
+        });
+    }
+
     private String getDeviceSn(Device device) {
         return getValue(device.getSn());
     }
 
-    @Override
-    public CloudResponse<Boolean> deleteDevice(Device device) {
+    Map<String, String> createDeleteDeviceData(Device device) {
         Map<String, String> data = new HashMap<>();
         String snlist = this.getDeviceSn(device);
         data.put("snlist", snlist);
-        CloudResponse<String> response = this.request("Open_printerDelList", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        CloudResponse<DevicesResponse> response = this.request("Open_printerDelList", this.createDeleteDeviceData(device), DevicesResponse.class);
         return this.createDevicesResponse(response);
     }
 
+    Map<String, String> createDeleteDevicesData(List<Device> devices) {
+        Map<String, String> data = new HashMap<>();
+        data.put("snlist", devices.stream().map(this::getDeviceSn).collect(Collectors.joining("-")));
+        return data;
+    }
+
     @Override
-    public CloudResponse<Device> queryDevice(Device device) {
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        return this.requestInChunks(devices, MAX_DEVICES_PER_REQUEST, chunk -> {
+            CloudResponse<DevicesResponse> response = this.request("Open_printerDelList", this.createDeleteDevicesData(chunk), DevicesResponse.class);
+            return this.createDevicesResponses(response, chunk);
+        });
+    }
+
+    Map<String, String> createQueryDeviceData(Device device) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", getValue(device.getSn()));
-        CloudResponse<String> response = this.request("Open_queryPrinterStatus", data);
+        return data;
+    }
+
+    CloudResponse<Device> createQueryDeviceResponse(CloudResponse<StringResponse> response, Device device) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        StringResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), StringResponse.class);
+        StringResponse vendorResponse = response.getSuccessEntity();
         if (!vendorResponse.isOK()) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.data.startsWith("在线，工作状态正常")) {
             device.markOnline().setStatus(Device.Status.NORMAL);
@@ -133,16 +265,26 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<Boolean> updateDevice(Device device) {
+    public CloudResponse<Device> queryDevice(Device device) {
+        CloudResponse<StringResponse> response = this.request("Open_queryPrinterStatus", this.createQueryDeviceData(device), StringResponse.class);
+        return this.createQueryDeviceResponse(response, device);
+    }
+
+    Map<String, String> createUpdateDeviceData(Device device) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", getValue(device.getSn()));
         data.put("name", getValue(device.getName()));
         data.put("phonenum", getValue(device.getCardno()));
-        CloudResponse<String> response = this.request("Open_printerEdit", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        CloudResponse<BoolResponse> response = this.request("Open_printerEdit", this.createUpdateDeviceData(device), BoolResponse.class);
         return this.createBoolResponse(response);
     }
 
-    private CloudResponse<Order> printOrder(String apiName, Device device, Order order) {
+    Map<String, String> createPrintOrderData(Device device, Order order) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", device.getSn());
         data.put("content", order.getContent());
@@ -153,18 +295,26 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
         if (backurl != null) {
             data.put("backurl", backurl);
         }
-        CloudResponse<String> response = this.request(apiName, data);
+        return data;
+    }
+
+    CloudResponse<Order> createPrintOrderResponse(CloudResponse<StringResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        StringResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), StringResponse.class);
+        StringResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         order.setId(vendorResponse.data);
         return CloudResponse.ofSuccess(order);
     }
 
+    private CloudResponse<Order> printOrder(String apiName, Device device, Order order) {
+        CloudResponse<StringResponse> response = this.request(apiName, this.createPrintOrderData(device, order), StringResponse.class);
+        return this.createPrintOrderResponse(response, order);
+    }
+
     @Override
     public CloudResponse<Order> printMsgOrder(Device device, Order order) {
         return this.printOrder("Open_printMsg", device, order);
@@ -175,17 +325,19 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
         return this.printOrder("Open_printLabelMsg", device, order);
     }
 
-    @Override
-    public CloudResponse<Order> queryOrder(Order order) {
+    Map<String, String> createQueryOrderData(Order order) {
         Map<String, String> data = new HashMap<>();
         data.put("orderid", order.getId());
-        CloudResponse<String> response = this.request("Open_queryOrderState", data);
+        return data;
+    }
+
+    CloudResponse<Order> createQueryOrderResponse(CloudResponse<BoolResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        BoolResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), BoolResponse.class);
+        BoolResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.data) {
             order.markPrinted();
@@ -196,26 +348,44 @@ public class FeieCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+    public CloudResponse<Order> queryOrder(Order order) {
+        CloudResponse<BoolResponse> response = this.request("Open_queryOrderState", this.createQueryOrderData(order), BoolResponse.class);
+        return this.createQueryOrderResponse(response, order);
+    }
+
+    Map<String, String> createQueryDeviceOrdersData(Device device, QueryOption queryOption) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", device.getSn());
         data.put("date", queryOption.getDate());
-        CloudResponse<String> response = this.request("Open_queryOrderInfoByDate", data);
+        return data;
+    }
+
+    CloudResponse<DeviceOrderStat> createQueryDeviceOrdersResponse(CloudResponse<DeviceOrderStatResponse> response, Device device, QueryOption queryOption) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        DeviceOrderStatResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), DeviceOrderStatResponse.class);
+        DeviceOrderStatResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         return CloudResponse.ofSuccess(new DeviceOrderStat(device.getSn(), queryOption.getDate(), vendorResponse.data.print, vendorResponse.data.waiting));
     }
 
     @Override
-    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        CloudResponse<DeviceOrderStatResponse> response = this.request("Open_queryOrderInfoByDate", this.createQueryDeviceOrdersData(device, queryOption), DeviceOrderStatResponse.class);
+        return this.createQueryDeviceOrdersResponse(response, device, queryOption);
+    }
+
+    Map<String, String> createClearDeviceOrdersData(Device device) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", device.getSn());
-        CloudResponse<String> vendorResponse = this.request("Open_delPrinterSqs", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+        CloudResponse<BoolResponse> vendorResponse = this.request("Open_delPrinterSqs", this.createClearDeviceOrdersData(device), BoolResponse.class);
         return this.createBoolResponse(vendorResponse);
     }
 }
@@ -0,0 +1,91 @@
+package io.github.xesam.cloud.feie;
+
+import com.fasterxml.jackson.core.JsonParser;
+import io.github.xesam.cloud.simple.JsonReaders;
+import io.github.xesam.cloud.simple.ResponseDecoder;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
+
+import java.io.IOException;
+
+/**
+ * 飞鹅响应 {"ret":..,"msg":..,"serverExecutedTime":..,"data":..} 的流式解码器
+ */
+final class FeieResponseDecoders {
+    private FeieResponseDecoders() {
+    }
+
+    static void registerTo(StreamingResponseParser parser) {
+        parser.register(BoolResponse.class, p -> decode(p, new BoolResponse(), JsonReaders::readBoolean))
+                .register(StringResponse.class, p -> decode(p, new StringResponse(), JsonReaders::readString))
+                .register(DevicesResponse.class, p -> decode(p, new DevicesResponse(), FeieResponseDecoders::decodeDevices))
+                .register(DeviceOrderStatResponse.class, p -> decode(p, new DeviceOrderStatResponse(), FeieResponseDecoders::decodeDeviceOrderStat));
+    }
+
+    private static <T, R extends VendorResponse<T>> R decode(JsonParser parser, R response, ResponseDecoder<T> dataDecoder) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "ret":
+                    response.ret = JsonReaders.readInt(parser);
+                    break;
+                case "msg":
+                    response.msg = JsonReaders.readString(parser);
+                    break;
+                case "serverExecutedTime":
+                    response.serverExecutedTime = JsonReaders.readInt(parser);
+                    break;
+                case "data":
+                    response.data = dataDecoder.decode(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return response;
+    }
+
+    private static DevicesResponse.Result decodeDevices(JsonParser parser) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        DevicesResponse.Result result = new DevicesResponse.Result();
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "ok":
+                    result.ok = JsonReaders.readStringList(parser);
+                    break;
+                case "no":
+                    result.no = JsonReaders.readStringList(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return result;
+    }
+
+    private static DeviceOrderStatResponse.Result decodeDeviceOrderStat(JsonParser parser) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        DeviceOrderStatResponse.Result result = new DeviceOrderStatResponse.Result();
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "print":
+                    result.print = JsonReaders.readInt(parser);
+                    break;
+                case "waiting":
+                    result.waiting = JsonReaders.readInt(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiter 根据厂商的限流响应自动调整速率：每次请求被厂商接受时加性增加，被限流时乘性减少。
+ * 速率不会超过 RateLimiter 中配置的速率，也不会低于 minPermitsPerSecond
+ */
+public final class AimdOption {
+    private double additiveIncrease = 0.2;
+    private double multiplicativeDecrease = 0.5;
+    private double minPermitsPerSecond = 0.5;
+    private long cooldownNanos = TimeUnit.SECONDS.toNanos(1);
+
+    public AimdOption() {
+    }
+
+    public double getAdditiveIncrease() {
+        return additiveIncrease;
+    }
+
+    /**
+     * 每次请求被厂商接受时增加的速率，单位为每秒令牌数
+     */
+    public AimdOption setAdditiveIncrease(double additiveIncrease) {
+        this.additiveIncrease = additiveIncrease;
+        return this;
+    }
+
+    public double getMultiplicativeDecrease() {
+        return multiplicativeDecrease;
+    }
+
+    /**
+     * 被厂商限流时速率乘以这个系数，取值在 0 到 1 之间
+     */
+    public AimdOption setMultiplicativeDecrease(double multiplicativeDecrease) {
+        if (!(multiplicativeDecrease > 0 && multiplicativeDecrease < 1)) {
+            throw new IllegalArgumentException("multiplicativeDecrease must be between 0 and 1");
+        }
+        this.multiplicativeDecrease = multiplicativeDecrease;
+        return this;
+    }
+
+    public double getMinPermitsPerSecond() {
+        return minPermitsPerSecond;
+    }
+
+    public AimdOption setMinPermitsPerSecond(double minPermitsPerSecond) {
+        this.minPermitsPerSecond = minPermitsPerSecond;
+        return this;
+    }
+
+    public long getCooldownNanos() {
+        return cooldownNanos;
+    }
+
+    /**
+     * 两次降速之间的最短间隔，同一时刻发出的多个请求一起被限流时只降速一次
+     */
+    public AimdOption setCooldown(long duration, TimeUnit unit) {
+        this.cooldownNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "AimdOption{" +
+                "additiveIncrease=" + additiveIncrease +
+                ", multiplicativeDecrease=" + multiplicativeDecrease +
+                ", minPermitsPerSecond=" + minPermitsPerSecond +
+                ", cooldownNanos=" + cooldownNanos +
+                '}';
+    }
+}
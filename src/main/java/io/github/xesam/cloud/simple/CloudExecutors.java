@@ -0,0 +1,146 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.CloudResponse;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * 阻塞接口的执行器。
+ * 运行在 Java 21+ 时使用虚拟线程，每个请求一个虚拟线程；低版本 Java 回退到最多 MAX_PLATFORM_THREADS 个线程的平台线程池
+ */
+public final class CloudExecutors {
+    /**
+     * 低版本 Java 上平台线程池的线程数上限，超出的任务排队等待
+     */
+    public static final int MAX_PLATFORM_THREADS = 64;
+    /**
+     * fanOut 默认同时进行的调用数
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private static final class DefaultHolder {
+        private static final ExecutorService INSTANCE = newBlockingIoExecutor();
+    }
+
+    private CloudExecutors() {
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 执行阻塞 I/O 的执行器：Java 21+ 返回虚拟线程执行器，否则返回最多 MAX_PLATFORM_THREADS 个守护线程的线程池，空闲线程 60 秒后回收
+     */
+    public static ExecutorService newBlockingIoExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cloud-printing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PLATFORM_THREADS, MAX_PLATFORM_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 进程内共享的默认执行器
+     */
+    public static ExecutorService getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * 在默认执行器上最多 DEFAULT_PARALLELISM 个并发执行 call，结果顺序与 items 一致
+     */
+    public static <T, R> List<CloudResponse<R>> fanOut(Collection<T> items, Function<T, CloudResponse<R>> call) {
+        return fanOut(getDefault(), items, DEFAULT_PARALLELISM, call);
+    }
+
+    /**
+     * 在 executor 上最多 DEFAULT_PARALLELISM 个并发执行 call
+     */
+    public static <T, R> List<CloudResponse<R>> fanOut(Executor executor, Collection<T> items, Function<T, CloudResponse<R>> call) {
+        return fanOut(executor, items, DEFAULT_PARALLELISM, call);
+    }
+
+    /**
+     * 在 executor 上最多 parallelism 个并发执行 call，结果顺序与 items 一致；单个调用抛出的异常转换为失败的 CloudResponse。
+     * 只提交 parallelism - 1 个任务依次领取 items，调用线程也参与执行，executor 繁忙或者嵌套调用 fanOut 时不会死锁
+     */
+    public static <T, R> List<CloudResponse<R>> fanOut(Executor executor, Collection<T> items, int parallelism, Function<T, CloudResponse<R>> call) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        List<T> inputs = new ArrayList<>(items);
+        AtomicReferenceArray<CloudResponse<R>> results = new AtomicReferenceArray<>(inputs.size());
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(inputs.size());
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < inputs.size()) {
+                CloudResponse<R> response;
+                try {
+                    response = call.apply(inputs.get(index));
+                } catch (Throwable throwable) {
+                    response = CloudResponse.ofFail(String.valueOf(throwable.getMessage()));
+                }
+                results.set(index, response);
+                done.countDown();
+            }
+        };
+        int helpers = Math.min(parallelism, inputs.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<CloudResponse<R>> responses = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            CloudResponse<R> response = results.get(i);
+            responses.add(response == null ? CloudResponse.ofFail("interrupted") : response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 把阻塞的 CloudApi 放到指定的 Executor 中执行，适配为 AsyncCloudApi
+ */
+public class ExecutorAsyncCloud implements AsyncCloudApi {
+    private final CloudApi cloudApi;
+    private final Executor executor;
+
+    public ExecutorAsyncCloud(CloudApi cloudApi, Executor executor) {
+        this.cloudApi = cloudApi;
+        this.executor = executor;
+    }
+
+    private <T> CompletableFuture<CloudResponse<T>> submit(Supplier<CloudResponse<T>> call) {
+        return CompletableFuture.supplyAsync(call, this.executor);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> addDevice(Device device) {
+        return submit(() -> cloudApi.addDevice(device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device) {
+        return submit(() -> cloudApi.deleteDevice(device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Device>> queryDevice(Device device) {
+        return submit(() -> cloudApi.queryDevice(device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device) {
+        return submit(() -> cloudApi.updateDevice(device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order) {
+        return submit(() -> cloudApi.printMsgOrder(device, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order) {
+        return submit(() -> cloudApi.printLabelOrder(device, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> queryOrder(Order order) {
+        return submit(() -> cloudApi.queryOrder(order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return submit(() -> cloudApi.queryDeviceOrders(device, queryOption));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device) {
+        return submit(() -> cloudApi.clearDeviceOrders(device));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.CloudResponse;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.RequestNotExecutedException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+
+/**
+ * 按异常类型与 HTTP 状态判断请求失败的原因
+ */
+final class FailReasons {
+    private FailReasons() {
+    }
+
+    /**
+     * 建立连接阶段的异常说明请求没有发出，其余 IO 异常都可能发生在厂商处理之后
+     */
+    static CloudResponse.FailReason of(Throwable e) {
+        if (e instanceof ConnectTimeoutException
+                || e instanceof ConnectionRequestTimeoutException
+                || e instanceof RequestNotExecutedException) {
+            return CloudResponse.FailReason.NOT_SENT;
+        }
+        return ofJdk(e);
+    }
+
+    /**
+     * 只按 JDK 的异常类型判断，不引用 httpclient5 的类，供 JdkRequestClient 使用
+     */
+    static CloudResponse.FailReason ofJdk(Throwable e) {
+        if (e instanceof ConnectException
+                || e instanceof UnknownHostException
+                || e instanceof NoRouteToHostException) {
+            return CloudResponse.FailReason.NOT_SENT;
+        }
+        if (e instanceof IOException) {
+            return CloudResponse.FailReason.AMBIGUOUS;
+        }
+        return CloudResponse.FailReason.UNKNOWN;
+    }
+
+    /**
+     * 截止时间已经过去，请求没有发出
+     */
+    static <T> CloudResponse<T> ofDeadlineExceeded() {
+        return CloudResponse.ofFail("deadline exceeded", CloudResponse.FailReason.NOT_SENT);
+    }
+
+    static CloudResponse.FailReason ofStatus(int statusCode) {
+        if (statusCode == 429) {
+            return CloudResponse.FailReason.THROTTLED;
+        }
+        if (statusCode >= 500) {
+            return CloudResponse.FailReason.SERVER_ERROR;
+        }
+        return CloudResponse.FailReason.HTTP_STATUS;
+    }
+}
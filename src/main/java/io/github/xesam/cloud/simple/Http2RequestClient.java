@@ -0,0 +1,312 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.AsyncRequestClient;
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.Deadline;
+import io.github.xesam.cloud.RequestClient;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.RequestNotExecutedException;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.ssl.ApplicationProtocol;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.Timeout;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 支持 HTTP/2 的 RequestClient。
+ * https 请求先使用 HTTP/2 客户端，同一主机的并发请求在一条连接上多路复用；
+ * TLS 握手时厂商没有通过 ALPN 选择 h2，这条连接不发出请求，记住这个主机并改用 HTTP/1.1 连接池重新发送，以后也直接使用 HTTP/1.1。
+ * http 请求总是使用 HTTP/1.1
+ */
+public class Http2RequestClient implements RequestClient<String>, Closeable {
+    private static final int DEFAULT_MAX_CONN_PER_ROUTE = 20;
+    private static final int DEFAULT_MAX_CONN_TOTAL = 200;
+
+    /**
+     * 记录 ALPN 没有协商出 h2 的主机，并让这条连接上的请求以 RequestNotExecutedException 失败
+     */
+    private final class AlpnTlsStrategy implements TlsStrategy {
+        private final TlsStrategy delegate;
+
+        AlpnTlsStrategy(TlsStrategy delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean upgrade(TransportSecurityLayer tlsSession, HttpHost host, SocketAddress localAddress, SocketAddress remoteAddress,
+                               Object attachment, Timeout handshakeTimeout) {
+            return this.delegate.upgrade(tlsSession, host, localAddress, remoteAddress, attachment, handshakeTimeout);
+        }
+
+        @Override
+        public void upgrade(TransportSecurityLayer tlsSession, NamedEndpoint endpoint, Object attachment, Timeout handshakeTimeout,
+                            FutureCallback<TransportSecurityLayer> callback) {
+            this.delegate.upgrade(tlsSession, endpoint, attachment, handshakeTimeout, new FutureCallback<TransportSecurityLayer>() {
+                @Override
+                public void completed(TransportSecurityLayer result) {
+                    TlsDetails tlsDetails = result.getTlsDetails();
+                    if (tlsDetails != null && ApplicationProtocol.HTTP_2.id.equals(tlsDetails.getApplicationProtocol())) {
+                        callback.completed(result);
+                        return;
+                    }
+                    http1Hosts.add(authority(endpoint.getHostName(), endpoint.getPort()));
+                    if (result instanceof IOSession) {
+                        ((IOSession) result).close(CloseMode.IMMEDIATE);
+                    }
+                    callback.failed(new RequestNotExecutedException("h2 not negotiated with " + endpoint));
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    callback.failed(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    callback.cancelled();
+                }
+            });
+        }
+    }
+
+    private final Set<String> http1Hosts = ConcurrentHashMap.newKeySet();
+    private final PoolingAsyncClientConnectionManager http1ConnectionManager;
+    private final SimpleAsyncRequestClient http1Client;
+    private final SimpleAsyncRequestClient h2Client;
+    private final AsyncRequestClient<String> asyncRequestClient = new AsyncRequestClient<String>() {
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+            return send(url, client -> client.httpGet(url, params, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPost(String url, String body, Map<String, String> headers) {
+            return send(url, client -> client.httpPost(url, body, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+            return send(url, client -> client.httpPost(url, formBody, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+            return send(url, client -> client.httpDelete(url, params, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+            return send(url, client -> client.httpPatch(url, formBody, headers));
+        }
+    };
+    private volatile long syncTimeoutMillis = 2 * SimpleRequestClient.DEFAULT_TIMEOUT_MILLIS;
+
+    private static String authority(String host, int port) {
+        return host + ":" + (port < 0 ? 443 : port);
+    }
+
+    private static PoolingAsyncClientConnectionManager createHttp1ConnectionManager(int maxConnPerRoute, int maxConnTotal, SSLContext sslContext) {
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(sslContext).build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .setMaxConnPerRoute(maxConnPerRoute)
+                .setMaxConnTotal(maxConnTotal)
+                .build();
+    }
+
+    private static CloseableHttpAsyncClient createHttp1Client(PoolingAsyncClientConnectionManager connectionManager) {
+        return HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new SimpleRequestClient.SimpleConnectionKeepAliveStrategy())
+                .setDefaultRequestConfig(SimpleRequestClient.createDefaultRequestConfig())
+                .build();
+    }
+
+    private CloseableHttpAsyncClient createH2Client(SSLContext sslContext) {
+        return HttpAsyncClients.customHttp2()
+                .setTlsStrategy(new AlpnTlsStrategy(ClientTlsStrategyBuilder.create()
+                        .setSslContext(sslContext)
+                        .setTlsVersions(TLS.V_1_3, TLS.V_1_2)
+                        .build()))
+                .setDefaultRequestConfig(SimpleRequestClient.createDefaultRequestConfig())
+                .build();
+    }
+
+    public Http2RequestClient() {
+        this(DEFAULT_MAX_CONN_PER_ROUTE, DEFAULT_MAX_CONN_TOTAL);
+    }
+
+    /**
+     * @param maxConnPerRoute 回退到 HTTP/1.1 时每个主机的最大连接数，也就是单主机的并发上限；HTTP/2 每个主机只使用一条连接
+     * @param maxConnTotal    回退到 HTTP/1.1 时所有主机的最大连接数
+     */
+    public Http2RequestClient(int maxConnPerRoute, int maxConnTotal) {
+        this(maxConnPerRoute, maxConnTotal, SSLContexts.createDefault());
+    }
+
+    /**
+     * @param sslContext 校验厂商证书使用的 SSLContext，比如信任私有 CA 的证书
+     */
+    public Http2RequestClient(int maxConnPerRoute, int maxConnTotal, SSLContext sslContext) {
+        this.http1ConnectionManager = createHttp1ConnectionManager(maxConnPerRoute, maxConnTotal, sslContext);
+        this.http1Client = new SimpleAsyncRequestClient(createHttp1Client(this.http1ConnectionManager));
+        this.h2Client = new SimpleAsyncRequestClient(this.createH2Client(sslContext));
+    }
+
+    /**
+     * 同步方法等待异步请求的最长时间，默认 10 秒，即建立连接与等待响应的默认超时之和；
+     * 当前线程绑定了截止时间时改为等待剩余时间。等待超时会取消请求并返回 AMBIGUOUS
+     */
+    public Http2RequestClient setSyncTimeout(long duration, TimeUnit unit) {
+        this.syncTimeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * 共享同一组连接的异步客户端
+     */
+    public AsyncRequestClient<String> getAsyncRequestClient() {
+        return this.asyncRequestClient;
+    }
+
+    /**
+     * HTTP/1.1 连接池当前的统计信息，HTTP/2 连接不在这个连接池中
+     */
+    public PoolStats getTotalStats() {
+        return this.http1ConnectionManager.getTotalStats();
+    }
+
+    /**
+     * host 是否已经回退到 HTTP/1.1，port 为 -1 时表示 443
+     */
+    public boolean isHttp1Host(String host, int port) {
+        return this.http1Hosts.contains(authority(host, port));
+    }
+
+    /**
+     * 只在 ALPN 没有协商出 h2 导致请求没有发出时用 HTTP/1.1 重新发送，不会重复发送厂商已经收到的请求。
+     * 调用方取消返回的 CompletableFuture 时，同时取消正在进行的请求
+     */
+    private CompletableFuture<CloudResponse<String>> send(String url, Function<SimpleAsyncRequestClient, CompletableFuture<CloudResponse<String>>> request) {
+        URI uri = URI.create(url);
+        if (!"https".equalsIgnoreCase(uri.getScheme())) {
+            return request.apply(this.http1Client);
+        }
+        String authority = authority(uri.getHost(), uri.getPort());
+        if (this.http1Hosts.contains(authority)) {
+            return request.apply(this.http1Client);
+        }
+        CompletableFuture<CloudResponse<String>> result = new CompletableFuture<>();
+        CompletableFuture<CloudResponse<String>> h2 = request.apply(this.h2Client);
+        h2.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            if (response.isSuccess() || response.getFailReason() != CloudResponse.FailReason.NOT_SENT || !this.http1Hosts.contains(authority)) {
+                result.complete(response);
+                return;
+            }
+            CompletableFuture<CloudResponse<String>> http1 = request.apply(this.http1Client);
+            result.whenComplete((ignored, t) -> {
+                if (result.isCancelled()) {
+                    http1.cancel(true);
+                }
+            });
+            http1.whenComplete((http1Response, http1Throwable) -> {
+                if (http1Throwable != null) {
+                    result.completeExceptionally(http1Throwable);
+                } else {
+                    result.complete(http1Response);
+                }
+            });
+        });
+        result.whenComplete((ignored, t) -> {
+            if (result.isCancelled()) {
+                h2.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private CloudResponse<String> await(CompletableFuture<CloudResponse<String>> future) {
+        Deadline deadline = Deadline.current();
+        long timeoutMillis = deadline == null ? this.syncTimeoutMillis : Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS));
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return CloudResponse.ofFail("no response in " + timeoutMillis + "ms", CloudResponse.FailReason.AMBIGUOUS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return CloudResponse.ofFail("interrupted", CloudResponse.FailReason.AMBIGUOUS);
+        } catch (ExecutionException e) {
+            return CloudResponse.ofFail(String.valueOf(e.getCause()), FailReasons.of(e.getCause()));
+        } catch (CancellationException e) {
+            return CloudResponse.ofFail("cancelled", CloudResponse.FailReason.AMBIGUOUS);
+        }
+    }
+
+    @Override
+    public CloudResponse<String> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+        return this.await(this.asyncRequestClient.httpGet(url, params, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, String body, Map<String, String> headers) {
+        return this.await(this.asyncRequestClient.httpPost(url, body, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return this.await(this.asyncRequestClient.httpPost(url, formBody, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        return this.await(this.asyncRequestClient.httpDelete(url, params, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return this.await(this.asyncRequestClient.httpPatch(url, formBody, headers));
+    }
+
+    @Override
+    public void close() {
+        this.h2Client.close();
+        this.http1Client.close();
+    }
+}
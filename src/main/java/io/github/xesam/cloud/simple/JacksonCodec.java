@@ -0,0 +1,111 @@
+package io.github.xesam.cloud.simple;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.github.xesam.cloud.RequestEncoder;
+import io.github.xesam.cloud.ResponseParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * 基于 jackson 的 ResponseParser 与 RequestEncoder，进程内共用一个 ObjectMapper。
+ * 每个响应类型第一次解析时创建 ObjectReader 并预取反序列化器，之后不再按类型查找
+ */
+public class JacksonCodec implements ResponseParser, RequestEncoder {
+    private static final class DefaultHolder {
+        private static final JacksonCodec INSTANCE = new JacksonCodec(createDefaultObjectMapper());
+    }
+
+    public static JacksonCodec getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static ObjectMapper createDefaultObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return objectMapper;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter requestWriter;
+    private final ClassValue<ObjectReader> readers = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return objectMapper.readerFor(type);
+        }
+    };
+
+    public JacksonCodec() {
+        this(createDefaultObjectMapper());
+    }
+
+    /**
+     * objectMapper 交给 JacksonCodec 后不应再修改配置
+     */
+    public JacksonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.requestWriter = objectMapper.writerFor(new TypeReference<Map<String, Object>>() {
+        }).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return this.objectMapper;
+    }
+
+    /**
+     * 提前为响应类型创建 ObjectReader，避免第一次请求时解析类型
+     */
+    public JacksonCodec prepare(Class<?>... klasses) {
+        for (Class<?> klass : klasses) {
+            this.readers.get(klass);
+        }
+        return this;
+    }
+
+    @Override
+    public <T> T parse(String responseString, Class<T> klass) {
+        try {
+            return this.readers.get(klass).readValue(responseString);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * jackson 直接从 UTF-8 字节流解析，读取缓冲区来自 jackson 自己的 BufferRecycler
+     */
+    @Override
+    public <T> T parse(InputStream responseStream, Class<T> klass) throws IOException {
+        try {
+            return this.readers.get(klass).readValue(responseStream);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public String encode(Map<String, Object> data) {
+        try {
+            return this.requestWriter.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+        }
+        return "";
+    }
+
+    @Override
+    public void encode(Map<String, Object> data, OutputStream out) throws IOException {
+        this.requestWriter.writeValue(out, data);
+    }
+}
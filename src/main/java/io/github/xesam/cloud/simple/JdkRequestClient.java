@@ -0,0 +1,89 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.AsyncRequestClient;
+import io.github.xesam.cloud.CloudException;
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.RequestBody;
+import io.github.xesam.cloud.ResponseHandler;
+import io.github.xesam.cloud.StreamingRequestClient;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * 基于 JDK java.net.http.HttpClient 的 RequestClient，真正的实现位于多版本 JAR 的 META-INF/versions/11。
+ * 这里是 Java 8 上加载的占位实现，创建时直接失败，使用前可以通过 isSupported() 判断
+ */
+public class JdkRequestClient implements StreamingRequestClient {
+
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public JdkRequestClient() {
+        this(CloudExecutors.getDefault());
+    }
+
+    public JdkRequestClient(Executor executor) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    public AsyncRequestClient<String> getAsyncRequestClient() {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public CloudResponse<String> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, String body, Map<String, String> headers) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public CloudResponse<String> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public CloudResponse<String> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        throw new CloudException("JdkRequestClient requires Java 11+");
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.xesam.cloud.simple;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 手写解码器共用的取值方法，标量之间的转换与 jackson databind 的默认行为保持一致：
+ * 数字字符串可以转为数字，标量可以转为字符串，null 对基本类型取零值
+ */
+public final class JsonReaders {
+    private JsonReaders() {
+    }
+
+    private static JsonParseException mismatch(JsonParser parser, String type) {
+        return new JsonParseException(parser, "Cannot decode " + parser.currentToken() + " as " + type);
+    }
+
+    /**
+     * 进入对象，当前 token 为 null 值时返回 false
+     */
+    public static boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw mismatch(parser, "object");
+        }
+        return true;
+    }
+
+    /**
+     * 移动到下一个字段的值上并返回字段名，对象结束时返回 null
+     */
+    public static String nextField(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.FIELD_NAME) {
+            return null;
+        }
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        return name;
+    }
+
+    /**
+     * 跳过当前值，对象与数组整体跳过，不会构建树
+     */
+    public static void skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return parser.getText();
+            default:
+                throw mismatch(parser, "String");
+        }
+    }
+
+    public static Integer readInteger(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getValueAsInt();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                try {
+                    return Integer.parseInt(text);
+                } catch (NumberFormatException e) {
+                    throw mismatch(parser, "int");
+                }
+            default:
+                throw mismatch(parser, "int");
+        }
+    }
+
+    public static int readInt(JsonParser parser) throws IOException {
+        Integer value = readInteger(parser);
+        return value == null ? 0 : value;
+    }
+
+    public static Boolean readBoolean(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+                return parser.getIntValue() != 0;
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                if ("true".equalsIgnoreCase(text)) {
+                    return Boolean.TRUE;
+                }
+                if ("false".equalsIgnoreCase(text)) {
+                    return Boolean.FALSE;
+                }
+                throw mismatch(parser, "boolean");
+            default:
+                throw mismatch(parser, "boolean");
+        }
+    }
+
+    public static boolean readBool(JsonParser parser) throws IOException {
+        Boolean value = readBoolean(parser);
+        return value != null && value;
+    }
+
+    public static List<String> readStringList(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw mismatch(parser, "List");
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(readString(parser));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 最近 size 次调用的耗时，用于估算耗时分位数。
+ * 分位数每记录 RECOMPUTE_INTERVAL 次重新计算一次，样本少于 minSamples 时返回 -1
+ */
+public final class LatencyWindow {
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] samples;
+    private final int minSamples;
+    private int count;
+    private int position;
+    private int pending;
+    private double percentile;
+    private long percentileNanos = -1;
+
+    public LatencyWindow(int size, int minSamples) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.samples = new long[size];
+        this.minSamples = Math.max(1, Math.min(size, minSamples));
+    }
+
+    public void record(long nanos) {
+        this.lock.lock();
+        try {
+            this.samples[this.position] = nanos;
+            this.position = (this.position + 1) % this.samples.length;
+            this.count = Math.min(this.count + 1, this.samples.length);
+            this.pending++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long percentileNanos(double percentile) {
+        this.lock.lock();
+        try {
+            if (this.count < this.minSamples) {
+                return -1;
+            }
+            if (this.percentileNanos < 0 || this.pending >= RECOMPUTE_INTERVAL || this.percentile != percentile) {
+                long[] sorted = Arrays.copyOf(this.samples, this.count);
+                Arrays.sort(sorted);
+                this.percentileNanos = sorted[Math.max(0, Math.min(this.count - 1, (int) Math.ceil(percentile * this.count) - 1))];
+                this.percentile = percentile;
+                this.pending = 0;
+            }
+            return this.percentileNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
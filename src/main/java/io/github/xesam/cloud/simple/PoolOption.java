@@ -0,0 +1,74 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池配置
+ */
+public final class PoolOption {
+    private int maxConnPerRoute = 20;
+    private int maxConnTotal = 200;
+    private long maxIdleMillis = TimeUnit.SECONDS.toMillis(30);
+    private long validateAfterInactivityMillis = TimeUnit.SECONDS.toMillis(2);
+
+    public PoolOption() {
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    /**
+     * 每个厂商主机的最大连接数
+     */
+    public PoolOption setMaxConnPerRoute(int maxConnPerRoute) {
+        this.maxConnPerRoute = maxConnPerRoute;
+        return this;
+    }
+
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    /**
+     * 整个连接池的最大连接数
+     */
+    public PoolOption setMaxConnTotal(int maxConnTotal) {
+        this.maxConnTotal = maxConnTotal;
+        return this;
+    }
+
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * 空闲超过这个时间的连接会被后台线程关闭
+     */
+    public PoolOption setMaxIdleTime(long duration, TimeUnit unit) {
+        this.maxIdleMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public long getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    /**
+     * 连接空闲超过这个时间后，复用前先检查连接是否可用
+     */
+    public PoolOption setValidateAfterInactivity(long duration, TimeUnit unit) {
+        this.validateAfterInactivityMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolOption{" +
+                "maxConnPerRoute=" + maxConnPerRoute +
+                ", maxConnTotal=" + maxConnTotal +
+                ", maxIdleMillis=" + maxIdleMillis +
+                ", validateAfterInactivityMillis=" + validateAfterInactivityMillis +
+                '}';
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.xesam.cloud.simple;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+
+import java.io.Closeable;
+
+/**
+ * 带连接池的 RequestClient，可以被任意多个 Cloud 对象共享。
+ * 不同账号、不同厂商的 Cloud 对象共用同一个 PoolingRequestClient 时，连接、线程都只有一份
+ */
+public class PoolingRequestClient extends SimpleRequestClient implements Closeable {
+    private static final class DefaultHolder {
+        private static final PoolingRequestClient INSTANCE = new PoolingRequestClient(new PoolOption());
+    }
+
+    /**
+     * 进程内共享的默认实例，SimpleCloud 默认使用这个实例
+     */
+    public static PoolingRequestClient getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+
+    private PoolingRequestClient(PoolingHttpClientConnectionManager connectionManager, PoolOption poolOption) {
+        this(connectionManager, HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(new SimpleConnectionKeepAliveStrategy())
+                .setDefaultRequestConfig(createDefaultRequestConfig())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(poolOption.getMaxIdleMillis()))
+                .build());
+    }
+
+    private PoolingRequestClient(PoolingHttpClientConnectionManager connectionManager, CloseableHttpClient client) {
+        super(client);
+        this.connectionManager = connectionManager;
+        this.client = client;
+    }
+
+    public PoolingRequestClient(PoolOption poolOption) {
+        // 等待空闲连接时阻塞在 synchronized 的 BasicFuture.get 上，虚拟线程会占住载体线程，见 README 虚拟线程一节
+        this(PoolingHttpClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setMaxConnPerRoute(poolOption.getMaxConnPerRoute())
+                .setMaxConnTotal(poolOption.getMaxConnTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(poolOption.getValidateAfterInactivityMillis()))
+                        .build())
+                .build(), poolOption);
+    }
+
+    /**
+     * 连接池当前的统计信息：leased 已借出、pending 等待中、available 空闲可用
+     */
+    public PoolStats getTotalStats() {
+        return this.connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() {
+        this.client.close(CloseMode.GRACEFUL);
+    }
+}
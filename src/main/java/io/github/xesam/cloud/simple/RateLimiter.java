@@ -0,0 +1,168 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按厂商账号（appId）与接口名分别限流，每个组合一个 TokenBucket。
+ * 没有单独配置的接口使用默认速率；多个 SimpleCloud 使用同一个 RateLimiter 与同一个账号时共用令牌。
+ * 设置 AimdOption 后，配置的速率作为上限，实际速率根据厂商是否限流自动调整
+ */
+public class RateLimiter {
+    private static final class Limit {
+        private final double permitsPerSecond;
+        private final int burst;
+
+        private Limit(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AdaptiveRate> adaptiveRates = new ConcurrentHashMap<>();
+    private volatile AimdOption aimdOption;
+    private volatile Limit defaultLimit;
+    private volatile long maxWaitNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile LongSupplier ticker = System::nanoTime;
+
+    /**
+     * 一个令牌桶的自适应速率，速率以 double 的位保存在 AtomicLong 中，调整时 CAS 更新
+     */
+    private static final class AdaptiveRate {
+        private final Limit limit;
+        private final AtomicLong rateBits;
+        private final AtomicLong lastDecreaseAt;
+
+        private AdaptiveRate(Limit limit, long now, long cooldownNanos) {
+            this.limit = limit;
+            this.rateBits = new AtomicLong(Double.doubleToLongBits(limit.permitsPerSecond));
+            this.lastDecreaseAt = new AtomicLong(now - cooldownNanos);
+        }
+    }
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.defaultLimit = new Limit(permitsPerSecond, burst);
+    }
+
+    /**
+     * 单独设置某个接口的速率，需要在开始请求之前设置
+     */
+    public RateLimiter setLimit(String apiName, double permitsPerSecond, int burst) {
+        this.limits.put(apiName, new Limit(permitsPerSecond, burst));
+        return this;
+    }
+
+    /**
+     * SimpleCloud 同步请求最多等待令牌的时间，0 表示没有令牌时立即失败；异步请求总是不等待
+     */
+    public RateLimiter setMaxWait(long duration, TimeUnit unit) {
+        this.maxWaitNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * 计时用的纳秒时钟，默认 System.nanoTime，需要在开始请求之前设置
+     */
+    public RateLimiter setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * 根据厂商的限流响应自动调整速率，需要在开始请求之前设置
+     */
+    public RateLimiter setAimd(AimdOption aimdOption) {
+        this.aimdOption = aimdOption;
+        return this;
+    }
+
+    public Map<String, TokenBucket> getBuckets() {
+        return this.buckets;
+    }
+
+    private static String keyOf(String appId, String apiName) {
+        return appId + "@" + apiName;
+    }
+
+    private Limit limitOf(String apiName) {
+        return this.limits.getOrDefault(apiName, this.defaultLimit);
+    }
+
+    /**
+     * 先用 get 查找，只在第一次使用时 computeIfAbsent，避免 Java 8 的 computeIfAbsent 在已有 key 时也加锁
+     */
+    public TokenBucket getBucket(String appId, String apiName) {
+        String key = keyOf(appId, apiName);
+        TokenBucket bucket = this.buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        return this.buckets.computeIfAbsent(key, k -> {
+            Limit limit = this.limitOf(apiName);
+            return new TokenBucket(limit.permitsPerSecond, limit.burst, this.ticker);
+        });
+    }
+
+    /**
+     * 一次请求的结果：throttled 为 true 表示被厂商限流，否则表示厂商正常接受了请求。
+     * 限流时速率乘以 multiplicativeDecrease，冷却时间内只降一次；接受时增加 additiveIncrease，直到配置的速率
+     */
+    public void onResponse(String appId, String apiName, boolean throttled) {
+        AimdOption option = this.aimdOption;
+        if (option == null) {
+            return;
+        }
+        String key = keyOf(appId, apiName);
+        long now = this.ticker.getAsLong();
+        AdaptiveRate adaptiveRate = this.adaptiveRates.get(key);
+        if (adaptiveRate == null) {
+            adaptiveRate = this.adaptiveRates.computeIfAbsent(key, k -> new AdaptiveRate(this.limitOf(apiName), now, option.getCooldownNanos()));
+        }
+        Limit limit = adaptiveRate.limit;
+        if (throttled) {
+            long lastDecreaseAt = adaptiveRate.lastDecreaseAt.get();
+            if (now - lastDecreaseAt < option.getCooldownNanos() || !adaptiveRate.lastDecreaseAt.compareAndSet(lastDecreaseAt, now)) {
+                return;
+            }
+        }
+        while (true) {
+            long bits = adaptiveRate.rateBits.get();
+            double rate = Double.longBitsToDouble(bits);
+            double next;
+            if (throttled) {
+                next = Math.max(Math.min(option.getMinPermitsPerSecond(), limit.permitsPerSecond), rate * option.getMultiplicativeDecrease());
+            } else if (rate < limit.permitsPerSecond) {
+                next = Math.min(limit.permitsPerSecond, rate + option.getAdditiveIncrease());
+            } else {
+                return;
+            }
+            if (adaptiveRate.rateBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                int burst = Math.max(1, (int) (limit.burst * next / limit.permitsPerSecond));
+                this.getBucket(appId, apiName).setRate(next, burst);
+                return;
+            }
+        }
+    }
+
+    public boolean tryAcquire(String appId, String apiName) {
+        return this.getBucket(appId, apiName).tryAcquire();
+    }
+
+    public boolean tryAcquire(String appId, String apiName, long timeout, TimeUnit unit) {
+        return this.getBucket(appId, apiName).tryAcquire(timeout, unit);
+    }
+
+    public void acquire(String appId, String apiName) {
+        this.getBucket(appId, apiName).acquire();
+    }
+}
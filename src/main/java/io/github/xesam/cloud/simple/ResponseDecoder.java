@@ -0,0 +1,12 @@
+package io.github.xesam.cloud.simple;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * 从 JsonParser 的当前 token 开始解码一个值，解码结束时停在该值的最后一个 token 上
+ */
+public interface ResponseDecoder<T> {
+    T decode(JsonParser parser) throws IOException;
+}
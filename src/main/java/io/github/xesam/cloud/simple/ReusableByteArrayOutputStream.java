@@ -0,0 +1,32 @@
+package io.github.xesam.cloud.simple;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 线程内复用的字节缓冲，直接暴露内部数组，交给 ByteArrayEntity 发送时不再复制
+ */
+final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+    private static final ThreadLocal<ReusableByteArrayOutputStream> LOCAL = ThreadLocal.withInitial(ReusableByteArrayOutputStream::new);
+
+    private ReusableByteArrayOutputStream() {
+        super(INITIAL_CAPACITY);
+    }
+
+    /**
+     * 当前线程的缓冲，内容只在下一次调用 local() 之前有效。超大的请求体用完后不保留，避免长期占用内存
+     */
+    static ReusableByteArrayOutputStream local() {
+        ReusableByteArrayOutputStream out = LOCAL.get();
+        if (out.buf.length > MAX_RETAINED_CAPACITY) {
+            out.buf = new byte[INITIAL_CAPACITY];
+        }
+        out.reset();
+        return out;
+    }
+
+    byte[] getBuffer() {
+        return this.buf;
+    }
+}
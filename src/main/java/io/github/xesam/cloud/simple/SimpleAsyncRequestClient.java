@@ -0,0 +1,163 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.AsyncRequestClient;
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.Deadline;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.Closeable;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * 基于 CloseableHttpAsyncClient 的 AsyncRequestClient，少量 I/O 线程即可承载大量并发请求
+ */
+public class SimpleAsyncRequestClient implements AsyncRequestClient<String>, Closeable {
+    private static final class DefaultHolder {
+        private static final SimpleAsyncRequestClient INSTANCE = new SimpleAsyncRequestClient();
+    }
+
+    /**
+     * 进程内共享的默认实例，只在第一次使用时启动 I/O 线程
+     */
+    public static SimpleAsyncRequestClient getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private final CloseableHttpAsyncClient client;
+    private final RequestConfig defaultRequestConfig;
+
+    private static CloseableHttpAsyncClient createDefault() {
+        return HttpAsyncClients.custom()
+                .setKeepAliveStrategy(new SimpleRequestClient.SimpleConnectionKeepAliveStrategy())
+                .setDefaultRequestConfig(SimpleRequestClient.createDefaultRequestConfig())
+                .build();
+    }
+
+    public SimpleAsyncRequestClient() {
+        this(createDefault());
+    }
+
+    /**
+     * client 如果还没有启动，会在这里启动；client 应当使用 SimpleRequestClient 的默认超时配置，否则使用另一个构造方法
+     */
+    public SimpleAsyncRequestClient(CloseableHttpAsyncClient client) {
+        this(client, SimpleRequestClient.createDefaultRequestConfig());
+    }
+
+    /**
+     * @param defaultRequestConfig client 的默认配置，设置了截止时间的请求在它的基础上修改超时
+     */
+    public SimpleAsyncRequestClient(CloseableHttpAsyncClient client, RequestConfig defaultRequestConfig) {
+        this.client = client;
+        this.defaultRequestConfig = defaultRequestConfig;
+        this.client.start();
+    }
+
+    private CompletableFuture<CloudResponse<String>> sendRequestWithHeaders(SimpleRequestBuilder builder, Map<String, String> headers) {
+        if (headers != null) {
+            headers.forEach(builder::addHeader);
+        }
+        SimpleHttpRequest request = builder.build();
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                return CompletableFuture.completedFuture(FailReasons.ofDeadlineExceeded());
+            }
+            request.setConfig(SimpleRequestClient.createDeadlineRequestConfig(this.defaultRequestConfig, deadline));
+        }
+        CompletableFuture<CloudResponse<String>> result = new CompletableFuture<>();
+        Future<SimpleHttpResponse> future = this.client.execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse httpResponse) {
+                int statusCode = httpResponse.getCode();
+                if (statusCode != 200) {
+                    result.complete(CloudResponse.ofFail("StatusCode is " + statusCode, FailReasons.ofStatus(statusCode)));
+                    return;
+                }
+                result.complete(CloudResponse.ofSuccess(getBodyText(httpResponse)));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.complete(CloudResponse.ofFail(e.getMessage(), FailReasons.of(e)));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        // 调用方取消时，同时取消底层的请求
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static String getBodyText(SimpleHttpResponse httpResponse) {
+        byte[] body = httpResponse.getBodyBytes();
+        if (body == null) {
+            return "";
+        }
+        ContentType contentType = httpResponse.getContentType();
+        Charset charset = contentType == null ? null : contentType.getCharset();
+        return new String(body, charset == null ? StandardCharsets.UTF_8 : charset);
+    }
+
+    private CompletableFuture<CloudResponse<String>> sendUrlParams(SimpleRequestBuilder builder, Map<String, String> params, Map<String, String> headers) {
+        builder.setUri(SimpleRequestClient.appendQuery(builder.getUri(), FormEncoder.local().writeQuery(params).toAsciiString()));
+        return sendRequestWithHeaders(builder, headers);
+    }
+
+    private CompletableFuture<CloudResponse<String>> sendUrlEncodedForm(SimpleRequestBuilder builder, Map<String, String> formData, Map<String, String> headers) {
+        // 请求体在 I/O 线程上异步写出，不能引用线程内复用的缓冲
+        builder.setBody(FormEncoder.local().writeForm(formData).toByteArray(), SimpleRequestClient.FORM_CONTENT_TYPE);
+        return sendRequestWithHeaders(builder, headers);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<String>> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+        return sendUrlParams(SimpleRequestBuilder.get(url), params, headers);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<String>> httpPost(String url, String body, Map<String, String> headers) {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(url)
+                .setBody(body, ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8));
+        return sendRequestWithHeaders(builder, headers);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<String>> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return sendUrlEncodedForm(SimpleRequestBuilder.post(url), formBody, headers);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<String>> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        return sendUrlParams(SimpleRequestBuilder.delete(url), params, headers);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<String>> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return sendUrlEncodedForm(SimpleRequestBuilder.patch(url), formBody, headers);
+    }
+
+    @Override
+    public void close() {
+        this.client.close(CloseMode.GRACEFUL);
+    }
+}
@@ -2,18 +2,37 @@ package io.github.xesam.cloud.simple;
 
 import io.github.xesam.cloud.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 public class SimpleCloud implements CloudApi {
     protected CloudAuth cloudAuth;
     protected CloudClock cloudClock;
     protected UrlRewriter urlRewriter;
     protected RequestClient<String> requestClient;
+    protected AsyncRequestClient<String> asyncRequestClient;
     protected ResponseParser responseParser;
+    protected RequestEncoder requestEncoder;
+    protected RateLimiter rateLimiter;
+    protected TimeoutPolicy timeoutPolicy;
+    protected volatile int fanOutParallelism = CloudExecutors.DEFAULT_PARALLELISM;
+    private final ConcurrentMap<String, String> urls = new ConcurrentHashMap<>();
 
     public SimpleCloud(CloudAuth cloudAuth) {
         this.cloudAuth = cloudAuth;
         this.setCloudClock(new DefaultCloudClock());
-        this.setRequestClient(new SimpleRequestClient());
-        this.setResponseParser(new SimpleResponseParser());
+        this.setResponseParser(StreamingResponseParser.getDefault());
+        this.setRequestEncoder(JacksonCodec.getDefault());
     }
 
     public void setCloudClock(CloudClock cloudClock) {
@@ -22,16 +41,302 @@ public class SimpleCloud implements CloudApi {
 
     public void setUrlRewriter(UrlRewriter urlRewriter) {
         this.urlRewriter = urlRewriter;
+        this.urls.clear();
+    }
+
+    /**
+     * 接口地址只依赖 urlRewriter 与接口名，按接口名缓存改写结果，更换 urlRewriter 时清空
+     */
+    protected String getUrl(String apiName) {
+        return this.urls.computeIfAbsent(apiName, this.urlRewriter::getUrl);
     }
 
     public void setRequestClient(RequestClient<String> requestClient) {
         this.requestClient = requestClient;
     }
 
+    /**
+     * 没有指定时使用进程内共享的连接池，第一次发出请求时才创建
+     */
+    protected RequestClient<String> getRequestClient() {
+        if (this.requestClient == null) {
+            return PoolingRequestClient.getDefault();
+        }
+        return this.requestClient;
+    }
+
+    public void setAsyncRequestClient(AsyncRequestClient<String> asyncRequestClient) {
+        this.asyncRequestClient = asyncRequestClient;
+    }
+
+    /**
+     * 没有指定时使用进程内共享的异步客户端
+     */
+    protected AsyncRequestClient<String> getAsyncRequestClient() {
+        if (this.asyncRequestClient == null) {
+            return SimpleAsyncRequestClient.getDefault();
+        }
+        return this.asyncRequestClient;
+    }
+
     public void setResponseParser(ResponseParser responseParser) {
         this.responseParser = responseParser;
     }
 
+    public void setRequestEncoder(RequestEncoder requestEncoder) {
+        this.requestEncoder = requestEncoder;
+    }
+
+    /**
+     * 按账号与接口名限流，默认不限流
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * 同步请求获取 apiName 的令牌，最多等待 RateLimiter 的 maxWait，当前线程绑定了截止时间时不超过剩余时间
+     */
+    protected boolean acquirePermit(String apiName) {
+        RateLimiter rateLimiter = this.rateLimiter;
+        if (rateLimiter == null) {
+            return true;
+        }
+        long maxWaitNanos = rateLimiter.getMaxWaitNanos();
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            maxWaitNanos = Math.max(0, Math.min(maxWaitNanos, deadline.remainingNanos()));
+        }
+        return rateLimiter.tryAcquire(this.cloudAuth.getAppId(), apiName, maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 异步请求不阻塞调用线程，没有令牌时直接失败
+     */
+    protected boolean tryAcquirePermit(String apiName) {
+        RateLimiter rateLimiter = this.rateLimiter;
+        return rateLimiter == null || rateLimiter.tryAcquire(this.cloudAuth.getAppId(), apiName);
+    }
+
+    /**
+     * 把厂商对一次请求的处理结果反馈给 RateLimiter，throttled 为 true 表示厂商提示请求过于频繁
+     */
+    protected void onVendorResponse(String apiName, boolean throttled) {
+        RateLimiter rateLimiter = this.rateLimiter;
+        if (rateLimiter != null) {
+            rateLimiter.onResponse(this.cloudAuth.getAppId(), apiName, throttled);
+        }
+    }
+
+    /**
+     * 按接口的耗时分位数设置超时时间，默认不设置，所有接口使用 RequestClient 的固定超时
+     */
+    public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+        this.timeoutPolicy = timeoutPolicy;
+    }
+
+    /**
+     * 批量接口拆分成多个请求时同时进行的请求数，默认 CloudExecutors.DEFAULT_PARALLELISM
+     */
+    public void setFanOutParallelism(int fanOutParallelism) {
+        if (fanOutParallelism < 1) {
+            throw new IllegalArgumentException("fanOutParallelism must be positive");
+        }
+        this.fanOutParallelism = fanOutParallelism;
+    }
+
+    protected <T, R> List<CloudResponse<R>> fanOut(List<T> items, Function<T, CloudResponse<R>> call) {
+        return CloudExecutors.fanOut(CloudExecutors.getDefault(), items, this.fanOutParallelism, call);
+    }
+
+    private Deadline deadlineOf(TimeoutPolicy timeoutPolicy, String apiName) {
+        return Deadline.after(timeoutPolicy.getTimeoutNanos(apiName), TimeUnit.NANOSECONDS).min(Deadline.current());
+    }
+
+    /**
+     * 请求没有发出或者被本地拒绝时，耗时不能反映厂商的响应时间；厂商限流的请求已经到达厂商，照常记录
+     */
+    private static void record(TimeoutPolicy timeoutPolicy, String apiName, long start, CloudResponse<?> response) {
+        CloudResponse.FailReason reason = response.getFailReason();
+        if (reason != CloudResponse.FailReason.NOT_SENT
+                && reason != CloudResponse.FailReason.CIRCUIT_OPEN
+                && reason != CloudResponse.FailReason.LOCALLY_REJECTED) {
+            timeoutPolicy.record(apiName, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 以 TimeoutPolicy 计算的超时时间与调用方的截止时间中较早的一个作为这次请求的截止时间
+     */
+    protected <R> CloudResponse<R> withTimeout(String apiName, Supplier<CloudResponse<R>> call) {
+        TimeoutPolicy timeoutPolicy = this.timeoutPolicy;
+        if (timeoutPolicy == null) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        CloudResponse<R> response = this.deadlineOf(timeoutPolicy, apiName).call(call);
+        record(timeoutPolicy, apiName, start, response);
+        return response;
+    }
+
+    /**
+     * 异步版本的 withTimeout，截止时间在发起请求时生效
+     */
+    protected <R> CompletableFuture<CloudResponse<R>> withTimeoutAsync(String apiName, Supplier<CompletableFuture<CloudResponse<R>>> call) {
+        TimeoutPolicy timeoutPolicy = this.timeoutPolicy;
+        if (timeoutPolicy == null) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        return this.deadlineOf(timeoutPolicy, apiName).call(call).thenApply(response -> {
+            record(timeoutPolicy, apiName, start, response);
+            return response;
+        });
+    }
+
+    /**
+     * 厂商正常处理或者提示请求过于频繁时，反馈给 RateLimiter 调整速率。
+     * 失败的结果中只有 THROTTLED 来自厂商（HTTP 429 或者厂商提示请求过于频繁）；本地拒绝是 LOCALLY_REJECTED，与网络错误等无法判断的结果一样不反馈
+     */
+    protected void feedback(String apiName, CloudResponse<? extends VendorEnvelope> response) {
+        if (response.isSuccess()) {
+            this.onVendorResponse(apiName, response.getSuccessEntity() != null && response.getSuccessEntity().isThrottled());
+        } else if (response.getFailReason() == CloudResponse.FailReason.THROTTLED) {
+            this.onVendorResponse(apiName, true);
+        }
+    }
+
+    protected static <R> CloudResponse<R> ofRateLimited(String apiName) {
+        return CloudResponse.ofFail("rate limited: " + apiName, CloudResponse.FailReason.LOCALLY_REJECTED);
+    }
+
+    /**
+     * 异步接口，不支持异步的实现直接在调用线程中执行同步接口
+     */
+    public AsyncCloudApi async() {
+        return new ExecutorAsyncCloud(this, Runnable::run);
+    }
+
+    private <R> ResponseHandler<R> createResponseHandler(Class<R> klass) {
+        return content -> this.responseParser.parse(content, klass);
+    }
+
+    protected <R> CloudResponse<R> parseResponse(CloudResponse<String> response, Class<R> klass) {
+        if (!response.isSuccess()) {
+            return CloudResponse.ofFail(response);
+        }
+        return CloudResponse.ofSuccess(this.responseParser.parse(response.getSuccessEntity(), klass));
+    }
+
+    /**
+     * 以下请求方法在 RequestClient 支持流式解析时，直接从响应流解码为 klass，否则先得到 String 再解析
+     */
+    protected <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpGet(url, params, headers, this.createResponseHandler(klass));
+        }
+        return this.parseResponse(requestClient.httpGet(url, params, headers), klass);
+    }
+
+    protected <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpPost(url, body, headers, this.createResponseHandler(klass));
+        }
+        return this.parseResponse(requestClient.httpPost(url, body, headers), klass);
+    }
+
+    protected <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpPost(url, formBody, headers, this.createResponseHandler(klass));
+        }
+        return this.parseResponse(requestClient.httpPost(url, formBody, headers), klass);
+    }
+
+    /**
+     * 不支持流式请求的 RequestClient 只能接收 String，先把请求体写成 UTF-8 字符串
+     */
+    protected <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpPost(url, body, headers, this.createResponseHandler(klass));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            body.writeTo(out);
+            return this.parseResponse(requestClient.httpPost(url, out.toString(StandardCharsets.UTF_8.name()), headers), klass);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getMessage());
+        }
+    }
+
+    protected <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpDelete(url, params, headers, this.createResponseHandler(klass));
+        }
+        return this.parseResponse(requestClient.httpDelete(url, params, headers), klass);
+    }
+
+    protected <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, Class<R> klass) {
+        RequestClient<String> requestClient = this.getRequestClient();
+        if (requestClient instanceof StreamingRequestClient) {
+            return ((StreamingRequestClient) requestClient).httpPatch(url, formBody, headers, this.createResponseHandler(klass));
+        }
+        return this.parseResponse(requestClient.httpPatch(url, formBody, headers), klass);
+    }
+
+    protected static List<CloudResponse<Device>> failAll(List<Device> devices, String failMessage) {
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (int i = 0; i < devices.size(); i++) {
+            responses.add(CloudResponse.ofFail(failMessage));
+        }
+        return responses;
+    }
+
+    /**
+     * 按 chunkSize 切分 devices，各批次最多 fanOutParallelism 个并发请求，结果按 devices 的顺序展开为每台设备的结果
+     */
+    protected List<CloudResponse<Device>> requestInChunks(List<Device> devices, int chunkSize, Function<List<Device>, List<CloudResponse<Device>>> chunkRequest) {
+        List<List<Device>> chunks = new ArrayList<>();
+        for (int from = 0; from < devices.size(); from += chunkSize) {
+            chunks.add(devices.subList(from, Math.min(devices.size(), from + chunkSize)));
+        }
+        List<CloudResponse<List<CloudResponse<Device>>>> chunkResponses = this.fanOut(chunks, chunk -> CloudResponse.ofSuccess(chunkRequest.apply(chunk)));
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            CloudResponse<List<CloudResponse<Device>>> chunkResponse = chunkResponses.get(i);
+            if (chunkResponse.isSuccess()) {
+                responses.addAll(chunkResponse.getSuccessEntity());
+            } else {
+                responses.addAll(failAll(chunks.get(i), chunkResponse.getFailMessage()));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * 厂商没有批量接口时，逐台设备调用单台接口，最多 fanOutParallelism 个并发
+     */
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.fanOut(devices, device -> {
+            CloudResponse<Boolean> response = this.addDevice(device);
+            return response.isSuccess() ? CloudResponse.ofSuccess(device) : CloudResponse.ofFail(response);
+        });
+    }
+
+    @Override
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        return this.fanOut(devices, device -> {
+            CloudResponse<Boolean> response = this.deleteDevice(device);
+            return response.isSuccess() ? CloudResponse.ofSuccess(device) : CloudResponse.ofFail(response);
+        });
+    }
+
     private <T> CloudResponse<T> Todo() {
         return CloudResponse.ofFail("not supported");
     }
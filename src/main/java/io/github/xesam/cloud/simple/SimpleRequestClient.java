@@ -1,35 +1,38 @@
 package io.github.xesam.cloud.simple;
 
 import io.github.xesam.cloud.CloudResponse;
-import io.github.xesam.cloud.RequestClient;
+import io.github.xesam.cloud.Deadline;
+import io.github.xesam.cloud.RequestBody;
+import io.github.xesam.cloud.ResponseHandler;
+import io.github.xesam.cloud.StreamingRequestClient;
 import org.apache.hc.client5.http.classic.methods.*;
 import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpResponse;
-import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
-import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.hc.core5.http.protocol.HttpContext;
-import org.apache.hc.core5.net.URIBuilder;
 import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
-public class SimpleRequestClient implements RequestClient<String> {
-    private static final class SimpleConnectionKeepAliveStrategy extends DefaultConnectionKeepAliveStrategy {
+public class SimpleRequestClient implements StreamingRequestClient {
+    static final class SimpleConnectionKeepAliveStrategy extends DefaultConnectionKeepAliveStrategy {
         private static final TimeValue TIMEOUT = TimeValue.ofSeconds(15);
 
         @Override
@@ -39,17 +42,54 @@ public class SimpleRequestClient implements RequestClient<String> {
         }
     }
 
+    private interface EntityReader<R> {
+        R read(HttpEntity entity) throws IOException, ParseException;
+    }
+
+    private static final EntityReader<String> STRING_READER = EntityUtils::toString;
+    static final ContentType FORM_CONTENT_TYPE = ContentType.APPLICATION_FORM_URLENCODED.withCharset(StandardCharsets.UTF_8);
+
+    static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
     private final CloseableHttpClient client;
+    private final RequestConfig defaultRequestConfig;
 
-    private static CloseableHttpClient createDefault() {
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectionRequestTimeout(5, TimeUnit.SECONDS)
-                .setConnectTimeout(5, TimeUnit.SECONDS)
-                .setResponseTimeout(5, TimeUnit.SECONDS)
+    static RequestConfig createDefaultRequestConfig() {
+        return createRequestConfig(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    static RequestConfig createRequestConfig(long timeoutMillis) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .setConnectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .setResponseTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
                 .build();
+    }
+
+    /**
+     * 当前线程绑定了截止时间时，在 client 默认配置的基础上以剩余时间作为 responseTimeout，可以长于默认的 5 秒；
+     * 等待连接与建立连接沿用默认配置，但不超过剩余时间。responseTimeout 是两次读取之间的间隔，因此只是近似限制整个请求的时间
+     */
+    @SuppressWarnings("deprecation")
+    static RequestConfig createDeadlineRequestConfig(RequestConfig defaultRequestConfig, Deadline deadline) {
+        long remainingMillis = Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS));
+        RequestConfig.Builder builder = RequestConfig.copy(defaultRequestConfig)
+                .setResponseTimeout(remainingMillis, TimeUnit.MILLISECONDS);
+        Timeout connectionRequestTimeout = defaultRequestConfig.getConnectionRequestTimeout();
+        if (connectionRequestTimeout == null || connectionRequestTimeout.isDisabled() || connectionRequestTimeout.toMilliseconds() > remainingMillis) {
+            builder.setConnectionRequestTimeout(remainingMillis, TimeUnit.MILLISECONDS);
+        }
+        Timeout connectTimeout = defaultRequestConfig.getConnectTimeout();
+        if (connectTimeout == null || connectTimeout.isDisabled() || connectTimeout.toMilliseconds() > remainingMillis) {
+            builder.setConnectTimeout(remainingMillis, TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    private static CloseableHttpClient createDefault() {
         return HttpClients.custom()
                 .setKeepAliveStrategy(new SimpleConnectionKeepAliveStrategy())
-                .setDefaultRequestConfig(requestConfig)
+                .setDefaultRequestConfig(createDefaultRequestConfig())
                 .build();
     }
 
@@ -57,81 +97,157 @@ public class SimpleRequestClient implements RequestClient<String> {
         this(createDefault());
     }
 
+    /**
+     * client 应当使用 createDefaultRequestConfig() 作为默认配置，否则使用另一个构造方法传入 client 的默认配置
+     */
     public SimpleRequestClient(CloseableHttpClient client) {
+        this(client, createDefaultRequestConfig());
+    }
+
+    /**
+     * @param defaultRequestConfig client 的默认配置，设置了截止时间的请求在它的基础上修改超时
+     */
+    public SimpleRequestClient(CloseableHttpClient client, RequestConfig defaultRequestConfig) {
         this.client = client;
+        this.defaultRequestConfig = defaultRequestConfig;
+    }
+
+    private static <R> EntityReader<R> createStreamReader(ResponseHandler<R> handler) {
+        return entity -> {
+            if (entity == null) {
+                return handler.handle(new ByteArrayInputStream(new byte[0]));
+            }
+            try (InputStream content = entity.getContent()) {
+                return handler.handle(content);
+            }
+        };
     }
 
-    private CloudResponse<String> sendRequestWithHeaders(HttpUriRequestBase request, Map<String, String> headers) {
+    private <R> CloudResponse<R> sendRequestWithHeaders(HttpUriRequestBase request, Map<String, String> headers, EntityReader<R> reader) {
         if (headers != null) {
             headers.forEach(request::addHeader);
         }
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                return FailReasons.ofDeadlineExceeded();
+            }
+            request.setConfig(createDeadlineRequestConfig(this.defaultRequestConfig, deadline));
+        }
         try (CloseableHttpResponse httpResponse = this.client.execute(request)) {
-            if (httpResponse.getCode() != 200) {
-                return CloudResponse.ofFail("StatusCode is " + httpResponse.getCode());
+            int statusCode = httpResponse.getCode();
+            if (statusCode != 200) {
+                return CloudResponse.ofFail("StatusCode is " + statusCode, FailReasons.ofStatus(statusCode));
             }
-            String responseString = EntityUtils.toString(httpResponse.getEntity());
-            return CloudResponse.ofSuccess(responseString);
+            return CloudResponse.ofSuccess(reader.read(httpResponse.getEntity()));
         } catch (IOException | ParseException e) {
             e.printStackTrace();
-            return CloudResponse.ofFail(e.getMessage());
+            return CloudResponse.ofFail(e.getMessage(), FailReasons.of(e));
         }
     }
 
-    private List<NameValuePair> buildPairs(Map<String, String> data) {
-        return data.entrySet().stream()
-                .map(ele -> new BasicNameValuePair(ele.getKey(), ele.getValue()))
-                .collect(Collectors.toList());
+    static URI appendQuery(URI uri, String query) {
+        if (query.isEmpty()) {
+            return uri;
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        String rawQuery = uri.getRawQuery() == null ? query : uri.getRawQuery() + "&" + query;
+        return URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + path + "?" + rawQuery);
     }
 
-    private CloudResponse<String> sendUrlParams(HttpUriRequestBase request, Map<String, String> params, Map<String, String> headers) {
-        List<NameValuePair> pairs = buildPairs(params);
+    private <R> CloudResponse<R> sendUrlParams(HttpUriRequestBase request, Map<String, String> params, Map<String, String> headers, EntityReader<R> reader) {
         URI uri;
         try {
-            uri = new URIBuilder(request.getUri())
-                    .addParameters(pairs)
-                    .build();
-        } catch (URISyntaxException e) {
+            uri = appendQuery(request.getUri(), FormEncoder.local().writeQuery(params).toAsciiString());
+        } catch (URISyntaxException | IllegalArgumentException e) {
             e.printStackTrace();
             return CloudResponse.ofFail(e.getMessage());
         }
         request.setUri(uri);
-        return sendRequestWithHeaders(request, headers);
+        return sendRequestWithHeaders(request, headers, reader);
+    }
+
+    /**
+     * 表单直接编码进线程内复用的缓冲，classic client 在 execute 返回前写完请求体，期间不会被复用
+     */
+    private <R> CloudResponse<R> sendUrlEncodedForm(HttpUriRequestBase request, Map<String, String> formData, Map<String, String> headers, EntityReader<R> reader) {
+        FormEncoder encoder = FormEncoder.local().writeForm(formData);
+        request.setEntity(new ByteArrayEntity(encoder.getBuffer(), 0, encoder.size(), FORM_CONTENT_TYPE));
+        return sendRequestWithHeaders(request, headers, reader);
     }
 
-    private CloudResponse<String> sendUrlEncodedForm(HttpUriRequestBase request, Map<String, String> formData, Map<String, String> headers) {
-        List<NameValuePair> pairs = buildPairs(formData);
-        request.setEntity(new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8));
-        return sendRequestWithHeaders(request, headers);
+    private <R> CloudResponse<R> sendBody(HttpUriRequestBase request, String body, Map<String, String> headers, EntityReader<R> reader) {
+        request.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+        return sendRequestWithHeaders(request, headers, reader);
+    }
+
+    /**
+     * 请求体写入线程内复用的缓冲后按原数组发送，大的打印内容在发送路径上只有这一份字节
+     */
+    private <R> CloudResponse<R> sendBody(HttpUriRequestBase request, RequestBody body, Map<String, String> headers, EntityReader<R> reader) {
+        ReusableByteArrayOutputStream out = ReusableByteArrayOutputStream.local();
+        try {
+            body.writeTo(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getMessage());
+        }
+        request.setEntity(new ByteArrayEntity(out.getBuffer(), 0, out.size(), null));
+        return sendRequestWithHeaders(request, headers, reader);
     }
 
     @Override
     public CloudResponse<String> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
-        HttpGet request = new HttpGet(url);
-        return sendUrlParams(request, params, headers);
+        return sendUrlParams(new HttpGet(url), params, headers, STRING_READER);
     }
 
     @Override
     public CloudResponse<String> httpPost(String url, String body, Map<String, String> headers) {
-        HttpPost request = new HttpPost(url);
-        request.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
-        return sendRequestWithHeaders(request, headers);
+        return sendBody(new HttpPost(url), body, headers, STRING_READER);
     }
 
     @Override
     public CloudResponse<String> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
-        HttpPost request = new HttpPost(url);
-        return sendUrlEncodedForm(request, formBody, headers);
+        return sendUrlEncodedForm(new HttpPost(url), formBody, headers, STRING_READER);
     }
 
     @Override
     public CloudResponse<String> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
-        HttpDelete request = new HttpDelete(url);
-        return sendUrlParams(request, params, headers);
+        return sendUrlParams(new HttpDelete(url), params, headers, STRING_READER);
     }
 
     @Override
     public CloudResponse<String> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
-        HttpPatch request = new HttpPatch(url);
-        return sendUrlEncodedForm(request, formBody, headers);
+        return sendUrlEncodedForm(new HttpPatch(url), formBody, headers, STRING_READER);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendUrlParams(new HttpGet(url), params, headers, createStreamReader(handler));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendBody(new HttpPost(url), body, headers, createStreamReader(handler));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendUrlEncodedForm(new HttpPost(url), formBody, headers, createStreamReader(handler));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendBody(new HttpPost(url), body, headers, createStreamReader(handler));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendUrlParams(new HttpDelete(url), params, headers, createStreamReader(handler));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        return sendUrlEncodedForm(new HttpPatch(url), formBody, headers, createStreamReader(handler));
     }
 }
@@ -0,0 +1,83 @@
+package io.github.xesam.cloud.simple;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.xesam.cloud.ResponseParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 基于 JsonParser token 流的 ResponseParser，已注册 ResponseDecoder 的类型直接逐个 token 解码，
+ * 不经过 databind 的反射与树结构，其他类型交给 JacksonCodec
+ */
+public class StreamingResponseParser implements ResponseParser {
+    private static final class DefaultHolder {
+        private static final StreamingResponseParser INSTANCE = new StreamingResponseParser(JacksonCodec.getDefault());
+    }
+
+    /**
+     * 进程内共享的默认实例，各厂商在加载时注册自己的响应解码器
+     */
+    public static StreamingResponseParser getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private final JsonFactory jsonFactory;
+    private final JacksonCodec fallback;
+    private final ConcurrentMap<Class<?>, ResponseDecoder<?>> decoders = new ConcurrentHashMap<>();
+
+    public StreamingResponseParser(JacksonCodec fallback) {
+        this.jsonFactory = fallback.getObjectMapper().getFactory();
+        this.fallback = fallback;
+    }
+
+    public <T> StreamingResponseParser register(Class<T> klass, ResponseDecoder<T> decoder) {
+        this.decoders.put(klass, decoder);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseDecoder<T> getDecoder(Class<T> klass) {
+        return (ResponseDecoder<T>) this.decoders.get(klass);
+    }
+
+    private <T> T decode(JsonParser parser, ResponseDecoder<T> decoder) throws IOException {
+        if (parser.nextToken() == null) {
+            throw new JsonParseException(parser, "No content to decode");
+        }
+        return decoder.decode(parser);
+    }
+
+    @Override
+    public <T> T parse(String responseString, Class<T> klass) {
+        ResponseDecoder<T> decoder = this.getDecoder(klass);
+        if (decoder == null) {
+            return this.fallback.parse(responseString, klass);
+        }
+        try (JsonParser parser = this.jsonFactory.createParser(responseString)) {
+            return this.decode(parser, decoder);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public <T> T parse(InputStream responseStream, Class<T> klass) throws IOException {
+        ResponseDecoder<T> decoder = this.getDecoder(klass);
+        if (decoder == null) {
+            return this.fallback.parse(responseStream, klass);
+        }
+        try (JsonParser parser = this.jsonFactory.createParser(responseStream)) {
+            return this.decode(parser, decoder);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
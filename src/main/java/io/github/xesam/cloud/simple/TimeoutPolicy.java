@@ -0,0 +1,116 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按接口名分别根据最近的耗时计算超时时间：timeout = percentile 分位耗时 * multiplier，并限制在 floor 与 ceiling 之间。
+ * 样本不足时使用 ceiling。每个 SimpleCloud 使用自己的 TimeoutPolicy，不同厂商互不影响
+ */
+public class TimeoutPolicy {
+    private static final int WINDOW_SIZE = 256;
+    private static final int MIN_SAMPLES = 20;
+
+    private static final class Bounds {
+        private final long floorNanos;
+        private final long ceilingNanos;
+
+        private Bounds(long floorNanos, long ceilingNanos) {
+            if (floorNanos <= 0 || ceilingNanos < floorNanos) {
+                throw new IllegalArgumentException("floor must be positive and not greater than ceiling");
+            }
+            this.floorNanos = floorNanos;
+            this.ceilingNanos = ceilingNanos;
+        }
+    }
+
+    private final ConcurrentMap<String, Bounds> bounds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private volatile Bounds defaultBounds = new Bounds(TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.SECONDS.toNanos(5));
+    private volatile double percentile = 0.99;
+    private volatile double multiplier = 2;
+
+    public TimeoutPolicy() {
+    }
+
+    /**
+     * 没有单独配置的接口使用的上下限
+     */
+    public TimeoutPolicy setBounds(long floor, long ceiling, TimeUnit unit) {
+        this.defaultBounds = new Bounds(unit.toNanos(floor), unit.toNanos(ceiling));
+        return this;
+    }
+
+    /**
+     * 单独配置某个接口的上下限，比如打印接口需要更长的上限
+     */
+    public TimeoutPolicy setBounds(String apiName, long floor, long ceiling, TimeUnit unit) {
+        this.bounds.put(apiName, new Bounds(unit.toNanos(floor), unit.toNanos(ceiling)));
+        return this;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * 默认 0.99
+     */
+    public TimeoutPolicy setPercentile(double percentile) {
+        if (!(percentile > 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * 分位耗时乘以这个系数作为超时时间，默认 2
+     */
+    public TimeoutPolicy setMultiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must not be less than 1");
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    private LatencyWindow windowOf(String apiName) {
+        return this.windows.computeIfAbsent(apiName, key -> new LatencyWindow(WINDOW_SIZE, MIN_SAMPLES));
+    }
+
+    /**
+     * 记录一次调用的耗时；超时的调用按实际等待的时间记录，连续超时时超时时间会逐步放大直到 ceiling
+     */
+    public void record(String apiName, long nanos) {
+        this.windowOf(apiName).record(nanos);
+    }
+
+    public long getTimeoutNanos(String apiName) {
+        Bounds bounds = this.bounds.getOrDefault(apiName, this.defaultBounds);
+        long percentileNanos = this.windowOf(apiName).percentileNanos(this.percentile);
+        if (percentileNanos < 0) {
+            return bounds.ceilingNanos;
+        }
+        long timeoutNanos = (long) Math.min(Long.MAX_VALUE, percentileNanos * this.multiplier);
+        return Math.max(bounds.floorNanos, Math.min(bounds.ceilingNanos, timeoutNanos));
+    }
+
+    public long getTimeoutMillis(String apiName) {
+        return TimeUnit.NANOSECONDS.toMillis(this.getTimeoutNanos(apiName));
+    }
+
+    @Override
+    public String toString() {
+        return "TimeoutPolicy{" +
+                "percentile=" + percentile +
+                ", multiplier=" + multiplier +
+                ", apis=" + windows.keySet() +
+                '}';
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 令牌桶，按 GCRA 实现：只记录下一个令牌的理论到达时间，获取令牌是一次 CAS，不加锁。
+ * 每秒补充 permitsPerSecond 个令牌，最多累积 burst 个
+ */
+public final class TokenBucket {
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    private final LongSupplier ticker;
+    private volatile long intervalNanos;
+    private volatile int burst;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double permitsPerSecond, int burst, LongSupplier ticker) {
+        this.ticker = ticker;
+        this.setRate(permitsPerSecond, burst);
+    }
+
+    /**
+     * 修改速率，已经预约的令牌不受影响
+     */
+    public void setRate(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burst = burst;
+    }
+
+    public double getRate() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / this.intervalNanos;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * 预约一个令牌，返回需要等待的纳秒数；需要等待超过 maxWaitNanos 时不预约，返回 -1
+     */
+    private long reserve(long maxWaitNanos) {
+        long interval = this.intervalNanos;
+        long tolerance = interval * this.burst;
+        while (true) {
+            long now = this.ticker.getAsLong();
+            long arrival = this.theoreticalArrival.get();
+            long next = (arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival) + interval;
+            long waitNanos = next - now - tolerance;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (this.theoreticalArrival.compareAndSet(arrival, next)) {
+                return Math.max(0, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * 不等待，没有可用令牌时返回 false
+     */
+    public boolean tryAcquire() {
+        return this.reserve(0) == 0;
+    }
+
+    /**
+     * 最多等待 timeout，等待超过 timeout 才能得到令牌时立即返回 false，不占用令牌
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) {
+        long waitNanos = this.reserve(unit.toNanos(timeout));
+        if (waitNanos < 0) {
+            return false;
+        }
+        sleep(waitNanos);
+        return true;
+    }
+
+    /**
+     * 一直等待到得到令牌
+     */
+    public void acquire() {
+        sleep(this.reserve(Long.MAX_VALUE));
+    }
+
+    private static void sleep(long waitNanos) {
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(waitNanos);
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket{" +
+                "rate=" + getRate() +
+                ", burst=" + burst +
+                '}';
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.xesam.cloud.simple;
+
+/**
+ * 厂商响应的外层结构，SimpleCloud 根据它判断厂商是否提示请求过于频繁
+ */
+public interface VendorEnvelope {
+    boolean isThrottled();
+}
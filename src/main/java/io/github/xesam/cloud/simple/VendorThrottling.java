@@ -0,0 +1,26 @@
+package io.github.xesam.cloud.simple;
+
+import java.util.Locale;
+
+/**
+ * 识别厂商“请求过于频繁”一类的提示。各厂商的限流错误码没有固定文档，按错误信息中的关键字判断
+ */
+public final class VendorThrottling {
+    private static final String[] KEYWORDS = {"频繁", "频率", "限流", "too frequent", "too many request", "rate limit"};
+
+    private VendorThrottling() {
+    }
+
+    public static boolean isThrottled(String message) {
+        if (message == null || message.isEmpty()) {
+            return false;
+        }
+        String text = message.toLowerCase(Locale.ROOT);
+        for (String keyword : KEYWORDS) {
+            if (text.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
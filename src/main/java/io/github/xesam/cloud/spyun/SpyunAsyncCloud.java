@@ -0,0 +1,69 @@
+package io.github.xesam.cloud.spyun;
+
+import io.github.xesam.cloud.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SpyunCloud 的异步视图，签名和解析逻辑与 SpyunCloud 保持一致
+ */
+class SpyunAsyncCloud implements AsyncCloudApi {
+    private final SpyunCloud cloud;
+
+    SpyunAsyncCloud(SpyunCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> addDevice(Device device) {
+        return cloud.requestAsync("post", "add", cloud.createAddDeviceData(device), VendorResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device) {
+        return cloud.requestAsync("delete", "delete", cloud.createSnData(device), VendorResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Device>> queryDevice(Device device) {
+        return cloud.requestAsync("get", "info", cloud.createSnData(device), DeviceResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceResponse(response, device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device) {
+        return cloud.requestAsync("patch", "update", cloud.createUpdateDeviceData(device), VendorResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order) {
+        return cloud.requestAsync("post", "print", cloud.createPrintOrderData(device, order), PrintResponse.class)
+                .thenApply(response -> cloud.createPrintOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order) {
+        return CompletableFuture.completedFuture(cloud.printLabelOrder(device, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> queryOrder(Order order) {
+        return cloud.requestAsync("get", "order/status", cloud.createQueryOrderData(order), OrderResponse.class)
+                .thenApply(response -> cloud.createQueryOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return cloud.requestAsync("get", "order/number", cloud.createQueryDeviceOrdersData(device, queryOption), DeviceOrderStatResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceOrdersResponse(response, device, queryOption));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device) {
+        return cloud.requestAsync("delete", "cleansqs", cloud.createSnData(device), VendorResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+}
@@ -1,25 +1,36 @@
 package io.github.xesam.cloud.spyun;
 
 import io.github.xesam.cloud.*;
+import io.github.xesam.cloud.simple.JacksonCodec;
 import io.github.xesam.cloud.simple.SimpleCloud;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 public class SpyunCloud extends SimpleCloud implements CloudApi {
 
+    private static final Map<String, String> REQUEST_HEADERS = Collections.singletonMap("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+
+    static {
+        JacksonCodec.getDefault().prepare(DeviceResponse.class, OrderResponse.class, PrintResponse.class, DeviceOrderStatResponse.class, VendorResponse.class);
+        SpyunResponseDecoders.registerTo(StreamingResponseParser.getDefault());
+    }
+
+    private final SpyunAsyncCloud asyncCloud = new SpyunAsyncCloud(this);
+
     public SpyunCloud(CloudAuth cloudAuth) {
         super(cloudAuth);
         this.setUrlRewriter(url -> "https://open.spyun.net/v1/printer/" + url);
     }
 
-    private Map<String, String> createRequestHeaders() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
-        return headers;
+    @Override
+    public AsyncCloudApi async() {
+        return this.asyncCloud;
     }
 
     private Map<String, String> fullfill(Map<String, String> data) {
@@ -27,74 +38,118 @@ public class SpyunCloud extends SimpleCloud implements CloudApi {
         data.put("timestamp", String.valueOf(this.cloudClock.getEpochSecond()));
         data.entrySet().removeIf(ele -> Objects.isNull(ele.getValue()) || ele.getValue().trim().isEmpty());
 
-        String paramStr = data.entrySet()
-                .stream()
-                .map(ele -> ele.getKey() + "=" + ele.getValue())
-                .collect(Collectors.joining("&"));
-
-        data.put("sign", MessageDigests.MD5(paramStr + "&appsecret=" + this.cloudAuth.getSecret()));
+        MessageDigests.Hasher hasher = MessageDigests.MD5Hasher();
+        boolean first = true;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            if (!first) {
+                hasher.update('&');
+            }
+            hasher.update(entry.getKey()).update('=').update(entry.getValue());
+            first = false;
+        }
+        data.put("sign", hasher.update("&appsecret=").update(this.cloudAuth.getSecret()).toHex());
         return data;
     }
 
-    private CloudResponse<String> request(String method, String apiName, Map<String, String> data) {
+    private <R extends VendorResponse> CloudResponse<R> send(String method, String apiName, Map<String, String> reqData, Class<R> klass) {
+        switch (method.toUpperCase()) {
+            case "POST":
+                return this.httpPost(this.getUrl(apiName), reqData, REQUEST_HEADERS, klass);
+            case "DELETE":
+                return this.httpDelete(this.getUrl(apiName), reqData, REQUEST_HEADERS, klass);
+            case "PATCH":
+                return this.httpPatch(this.getUrl(apiName), reqData, REQUEST_HEADERS, klass);
+            default:
+                return this.httpGet(this.getUrl(apiName), reqData, REQUEST_HEADERS, klass);
+        }
+    }
+
+    private <R extends VendorResponse> CloudResponse<R> request(String method, String apiName, Map<String, String> data, Class<R> klass) {
+        if (!this.acquirePermit(apiName)) {
+            return ofRateLimited(apiName);
+        }
         Map<String, String> reqData = this.fullfill(data);
+        CloudResponse<R> response = this.withTimeout(apiName, () -> this.send(method, apiName, reqData, klass));
+        this.feedback(apiName, response);
+        return response;
+    }
+
+    private CompletableFuture<CloudResponse<String>> sendAsync(String method, String apiName, Map<String, String> reqData) {
+        AsyncRequestClient<String> asyncRequestClient = this.getAsyncRequestClient();
         switch (method.toUpperCase()) {
             case "POST":
-                return this.requestClient.httpPost(this.urlRewriter.getUrl(apiName), reqData, this.createRequestHeaders());
+                return asyncRequestClient.httpPost(this.getUrl(apiName), reqData, REQUEST_HEADERS);
             case "DELETE":
-                return this.requestClient.httpDelete(this.urlRewriter.getUrl(apiName), reqData, this.createRequestHeaders());
+                return asyncRequestClient.httpDelete(this.getUrl(apiName), reqData, REQUEST_HEADERS);
             case "PATCH":
-                return this.requestClient.httpPatch(this.urlRewriter.getUrl(apiName), reqData, this.createRequestHeaders());
+                return asyncRequestClient.httpPatch(this.getUrl(apiName), reqData, REQUEST_HEADERS);
             default:
-                return this.requestClient.httpGet(this.urlRewriter.getUrl(apiName), reqData, this.createRequestHeaders());
+                return asyncRequestClient.httpGet(this.getUrl(apiName), reqData, REQUEST_HEADERS);
         }
     }
 
+    <R extends VendorResponse> CompletableFuture<CloudResponse<R>> requestAsync(String method, String apiName, Map<String, String> data, Class<R> klass) {
+        if (!this.tryAcquirePermit(apiName)) {
+            return CompletableFuture.completedFuture(ofRateLimited(apiName));
+        }
+        Map<String, String> reqData = this.fullfill(data);
+        return this.withTimeoutAsync(apiName, () -> this.sendAsync(method, apiName, reqData))
+                .thenApply(response -> {
+                    CloudResponse<R> parsed = this.parseResponse(response, klass);
+                    this.feedback(apiName, parsed);
+                    return parsed;
+                });
+    }
+
     private boolean checkVendorResponse(VendorResponse vendorResponse) {
         return vendorResponse != null && vendorResponse.isOK();
     }
 
-    private CloudResponse<Boolean> createBoolResponse(CloudResponse<String> requestResponse) {
+    CloudResponse<Boolean> createBoolResponse(CloudResponse<VendorResponse> requestResponse) {
         if (!requestResponse.isSuccess()) {
-            return CloudResponse.ofFail(requestResponse.getFailMessage());
+            return CloudResponse.ofFail(requestResponse);
         }
-        VendorResponse vendorResponse = responseParser.parse(requestResponse.getSuccessEntity(), VendorResponse.class);
+        VendorResponse vendorResponse = requestResponse.getSuccessEntity();
         if (this.checkVendorResponse(vendorResponse)) {
             return CloudResponse.ofSuccess(true);
         } else {
-            return CloudResponse.ofFail(vendorResponse.errormsg);
+            return vendorResponse.toFail();
         }
     }
 
-    @Override
-    public CloudResponse<Boolean> addDevice(Device device) {
+    Map<String, String> createAddDeviceData(Device device) {
         Map<String, String> data = new TreeMap<>();
         data.put("sn", device.getSn());
         data.put("pkey", device.getKey());
         data.put("name", device.getName());
-        CloudResponse<String> response = this.request("post", "add", data);
-        return this.createBoolResponse(response);
+        return data;
     }
 
     @Override
-    public CloudResponse<Boolean> deleteDevice(Device device) {
-        Map<String, String> data = new TreeMap<>();
-        data.put("sn", device.getSn());
-        CloudResponse<String> response = this.request("delete", "delete", data);
+    public CloudResponse<Boolean> addDevice(Device device) {
+        CloudResponse<VendorResponse> response = this.request("post", "add", this.createAddDeviceData(device), VendorResponse.class);
         return this.createBoolResponse(response);
     }
 
-    @Override
-    public CloudResponse<Device> queryDevice(Device device) {
+    Map<String, String> createSnData(Device device) {
         Map<String, String> data = new TreeMap<>();
         data.put("sn", device.getSn());
-        CloudResponse<String> response = this.request("get", "info", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        CloudResponse<VendorResponse> response = this.request("delete", "delete", this.createSnData(device), VendorResponse.class);
+        return this.createBoolResponse(response);
+    }
+
+    CloudResponse<Device> createQueryDeviceResponse(CloudResponse<DeviceResponse> response, Device device) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        DeviceResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), DeviceResponse.class);
+        DeviceResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return vendorResponse == null ? CloudResponse.ofFail(response.getFailMessage()) : vendorResponse.toFail();
         }
         device.setName(vendorResponse.name)
                 .setCardno(vendorResponse.imsi)
@@ -113,43 +168,63 @@ public class SpyunCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<Boolean> updateDevice(Device device) {
+    public CloudResponse<Device> queryDevice(Device device) {
+        CloudResponse<DeviceResponse> response = this.request("get", "info", this.createSnData(device), DeviceResponse.class);
+        return this.createQueryDeviceResponse(response, device);
+    }
+
+    Map<String, String> createUpdateDeviceData(Device device) {
         Map<String, String> data = new TreeMap<>();
         data.put("sn", device.getSn());
         data.put("name", device.getName());
-        CloudResponse<String> response = this.request("patch", "update", data);
-        return this.createBoolResponse(response);
+        return data;
     }
 
     @Override
-    public CloudResponse<Order> printMsgOrder(Device device, Order order) {
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        CloudResponse<VendorResponse> response = this.request("patch", "update", this.createUpdateDeviceData(device), VendorResponse.class);
+        return this.createBoolResponse(response);
+    }
+
+    Map<String, String> createPrintOrderData(Device device, Order order) {
         Map<String, String> data = new TreeMap<>();
         data.put("sn", device.getSn());
         data.put("content", order.getContent());
         data.put("times", String.valueOf(order.getCopies()));
-        CloudResponse<String> response = this.request("post", "print", data);
+        return data;
+    }
+
+    CloudResponse<Order> createPrintOrderResponse(CloudResponse<PrintResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        PrintResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), PrintResponse.class);
+        PrintResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return vendorResponse == null ? CloudResponse.ofFail(response.getFailMessage()) : vendorResponse.toFail();
         }
         order.setId(vendorResponse.id);
         return CloudResponse.ofSuccess(order);
     }
 
     @Override
-    public CloudResponse<Order> queryOrder(Order order) {
+    public CloudResponse<Order> printMsgOrder(Device device, Order order) {
+        CloudResponse<PrintResponse> response = this.request("post", "print", this.createPrintOrderData(device, order), PrintResponse.class);
+        return this.createPrintOrderResponse(response, order);
+    }
+
+    Map<String, String> createQueryOrderData(Order order) {
         Map<String, String> data = new TreeMap<>();
         data.put("id", order.getId());
-        CloudResponse<String> response = this.request("get", "order/status", data);
+        return data;
+    }
+
+    CloudResponse<Order> createQueryOrderResponse(CloudResponse<OrderResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        OrderResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), OrderResponse.class);
+        OrderResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.errormsg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.status) {
             order.markPrinted();
@@ -160,26 +235,38 @@ public class SpyunCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+    public CloudResponse<Order> queryOrder(Order order) {
+        CloudResponse<OrderResponse> response = this.request("get", "order/status", this.createQueryOrderData(order), OrderResponse.class);
+        return this.createQueryOrderResponse(response, order);
+    }
+
+    Map<String, String> createQueryDeviceOrdersData(Device device, QueryOption queryOption) {
         Map<String, String> data = new HashMap<>();
         data.put("sn", device.getSn());
         data.put("date", queryOption.getDate());
-        CloudResponse<String> response = this.request("get", "order/number", data);
+        return data;
+    }
+
+    CloudResponse<DeviceOrderStat> createQueryDeviceOrdersResponse(CloudResponse<DeviceOrderStatResponse> response, Device device, QueryOption queryOption) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        DeviceOrderStatResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), DeviceOrderStatResponse.class);
+        DeviceOrderStatResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.errormsg);
+            return vendorResponse.toFail();
         }
         return CloudResponse.ofSuccess(new DeviceOrderStat(device.getSn(), queryOption.getDate(), vendorResponse.number, 0));
     }
 
+    @Override
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        CloudResponse<DeviceOrderStatResponse> response = this.request("get", "order/number", this.createQueryDeviceOrdersData(device, queryOption), DeviceOrderStatResponse.class);
+        return this.createQueryDeviceOrdersResponse(response, device, queryOption);
+    }
+
     @Override
     public CloudResponse<Boolean> clearDeviceOrders(Device device) {
-        Map<String, String> data = new TreeMap<>();
-        data.put("sn", device.getSn());
-        CloudResponse<String> response = this.request("delete", "cleansqs", data);
+        CloudResponse<VendorResponse> response = this.request("delete", "cleansqs", this.createSnData(device), VendorResponse.class);
         return this.createBoolResponse(response);
     }
 }
@@ -0,0 +1,120 @@
+package io.github.xesam.cloud.spyun;
+
+import com.fasterxml.jackson.core.JsonParser;
+import io.github.xesam.cloud.simple.JsonReaders;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
+
+import java.io.IOException;
+
+/**
+ * 商鹏响应的流式解码器，errorcode/errormsg 与业务字段在同一层
+ */
+final class SpyunResponseDecoders {
+    private interface FieldDecoder<R extends VendorResponse> {
+        /**
+         * 解码业务字段，不认识的字段返回 false
+         */
+        boolean decode(JsonParser parser, String field, R response) throws IOException;
+    }
+
+    private SpyunResponseDecoders() {
+    }
+
+    static void registerTo(StreamingResponseParser parser) {
+        parser.register(VendorResponse.class, p -> decode(p, new VendorResponse(), (jp, field, response) -> false))
+                .register(DeviceResponse.class, p -> decode(p, new DeviceResponse(), SpyunResponseDecoders::decodeDevice))
+                .register(OrderResponse.class, p -> decode(p, new OrderResponse(), SpyunResponseDecoders::decodeOrder))
+                .register(PrintResponse.class, p -> decode(p, new PrintResponse(), SpyunResponseDecoders::decodePrint))
+                .register(DeviceOrderStatResponse.class, p -> decode(p, new DeviceOrderStatResponse(), SpyunResponseDecoders::decodeDeviceOrderStat));
+    }
+
+    private static <R extends VendorResponse> R decode(JsonParser parser, R response, FieldDecoder<R> fieldDecoder) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "errorcode":
+                    response.errorcode = JsonReaders.readInt(parser);
+                    break;
+                case "errormsg":
+                    response.errormsg = JsonReaders.readString(parser);
+                    break;
+                default:
+                    if (!fieldDecoder.decode(parser, field, response)) {
+                        JsonReaders.skip(parser);
+                    }
+            }
+        }
+        return response;
+    }
+
+    private static boolean decodeDevice(JsonParser parser, String field, DeviceResponse response) throws IOException {
+        switch (field) {
+            case "sn":
+                response.sn = JsonReaders.readString(parser);
+                return true;
+            case "name":
+                response.name = JsonReaders.readString(parser);
+                return true;
+            case "online":
+                response.online = JsonReaders.readInt(parser);
+                return true;
+            case "status":
+                response.status = JsonReaders.readInt(parser);
+                return true;
+            case "imsi":
+                response.imsi = JsonReaders.readString(parser);
+                return true;
+            case "sqsnum":
+                response.sqsnum = JsonReaders.readInt(parser);
+                return true;
+            case "model":
+                response.model = JsonReaders.readString(parser);
+                return true;
+            case "auto_cut":
+                response.auto_cut = JsonReaders.readInt(parser);
+                return true;
+            case "voice":
+                response.voice = JsonReaders.readString(parser);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean decodeOrder(JsonParser parser, String field, OrderResponse response) throws IOException {
+        switch (field) {
+            case "status":
+                response.status = JsonReaders.readBool(parser);
+                return true;
+            case "print_time":
+                response.print_time = JsonReaders.readString(parser);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean decodePrint(JsonParser parser, String field, PrintResponse response) throws IOException {
+        switch (field) {
+            case "id":
+                response.id = JsonReaders.readString(parser);
+                return true;
+            case "create_time":
+                response.create_time = JsonReaders.readString(parser);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean decodeDeviceOrderStat(JsonParser parser, String field, DeviceOrderStatResponse response) throws IOException {
+        if ("number".equals(field)) {
+            response.number = JsonReaders.readInt(parser);
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,6 +1,10 @@
 package io.github.xesam.cloud.spyun;
 
-class VendorResponse {
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.simple.VendorEnvelope;
+import io.github.xesam.cloud.simple.VendorThrottling;
+
+class VendorResponse implements VendorEnvelope {
     private static final int OK = 0;
     public int errorcode = -1;
     public String errormsg;
@@ -8,4 +12,13 @@ class VendorResponse {
     public boolean isOK() {
         return errorcode == OK;
     }
+
+    @Override
+    public boolean isThrottled() {
+        return !isOK() && VendorThrottling.isThrottled(errormsg);
+    }
+
+    <R> CloudResponse<R> toFail() {
+        return CloudResponse.ofFail(errormsg, isThrottled() ? CloudResponse.FailReason.THROTTLED : CloudResponse.FailReason.UNKNOWN);
+    }
 }
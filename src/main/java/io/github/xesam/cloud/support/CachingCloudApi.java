@@ -0,0 +1,597 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.*;
+import io.github.xesam.cloud.simple.CloudExecutors;
+import io.github.xesam.cloud.simple.DefaultCloudClock;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 缓存 queryDevice 与 queryDeviceOrders 的结果，查询失败的结果不缓存。
+ * 设备状态超过 refreshAfter 后仍直接返回，同时在后台刷新一次；超过 ttl 后重新同步查询。
+ * 设备状态按最近使用淘汰，updateDevice、deleteDevice、clearDeviceOrders 成功后会清掉对应设备的缓存。
+ * 今天（按厂商的时区，默认 Asia/Shanghai）以前的订单统计不会再变化，永久保存在内存中，可以另外通过 DeviceOrderStatStore 持久化；今天及以后的订单统计使用 orderStatTtl。
+ * 已打印的订单不会再变回待打印，在 printedOrderTtl 内不再查询厂商；待打印的订单使用 waitingOrderTtl
+ */
+public class CachingCloudApi implements CloudApi {
+    /**
+     * 目前接入的厂商都按北京时间划分订单日期
+     */
+    public static final ZoneId VENDOR_ZONE_ID = ZoneId.of("Asia/Shanghai");
+
+    private final CloudApi delegate;
+    private final LruMap<DeviceEntry> devices = new LruMap<>();
+    private final LruMap<OrderStatEntry> recentOrderStats = new LruMap<>();
+    private final ConcurrentMap<String, DeviceOrderStat> historyOrderStats = new ConcurrentHashMap<>();
+    private final OrderStatusTable orderStatuses = new OrderStatusTable(1 << 20);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Tombstones tombstones = new Tombstones();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private volatile long ttlNanos = TimeUnit.SECONDS.toNanos(30);
+    private volatile long refreshAfterNanos = TimeUnit.SECONDS.toNanos(20);
+    private volatile long orderStatTtlNanos = TimeUnit.SECONDS.toNanos(10);
+    private volatile long printedOrderTtlNanos = TimeUnit.DAYS.toNanos(1);
+    private volatile long waitingOrderTtlNanos = TimeUnit.SECONDS.toNanos(5);
+    private volatile Executor executor = CloudExecutors.getDefault();
+    private volatile LongSupplier ticker = System::nanoTime;
+    private volatile CloudClock cloudClock = new DefaultCloudClock();
+    private volatile ZoneId zoneId = VENDOR_ZONE_ID;
+    private volatile DeviceOrderStatStore orderStatStore;
+
+    private static final class LruMap<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private int maximumSize = 1024;
+
+        private LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return this.size() > this.maximumSize;
+        }
+    }
+
+    /**
+     * 每台设备最近一次被清除时的序号。查询开始后同一台设备被清除过时丢弃查询结果，其他设备的查询不受影响。
+     * 记录数按最近清除淘汰，被淘汰的序号提高 floor，早于 floor 开始的查询一律丢弃，保证不会写回旧状态
+     */
+    private static final class Tombstones extends LinkedHashMap<String, Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private int maximumSize = 1024;
+        private long floor;
+
+        private Tombstones() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (this.size() > this.maximumSize) {
+                this.floor = Math.max(this.floor, eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+
+        private void mark(String sn, long invalidation) {
+            this.lock.lock();
+            try {
+                this.put(sn, invalidation);
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private void markAll(long invalidation) {
+            this.lock.lock();
+            try {
+                this.clear();
+                this.floor = invalidation;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * 序号为 start 时开始的查询，期间 sn 是否被清除过
+         */
+        private boolean isInvalidatedSince(String sn, long start) {
+            this.lock.lock();
+            try {
+                Long invalidation = this.get(sn);
+                return this.floor > start || (invalidation != null && invalidation > start);
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private static final class DeviceEntry {
+        private final Device device;
+        private final long loadedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private DeviceEntry(Device device, long loadedAt) {
+            this.device = device;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class OrderStatEntry {
+        private final DeviceOrderStat stat;
+        private final long loadedAt;
+
+        private OrderStatEntry(DeviceOrderStat stat, long loadedAt) {
+            this.stat = stat;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public CachingCloudApi(CloudApi delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 设备状态的有效期，超过后 queryDevice 会同步查询厂商
+     */
+    public CachingCloudApi setTtl(long duration, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 缓存超过这个时间后，命中时在后台提前刷新，不小于 ttl 时不做提前刷新
+     */
+    public CachingCloudApi setRefreshAfter(long duration, TimeUnit unit) {
+        this.refreshAfterNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 今天及以后日期的订单统计的有效期
+     */
+    public CachingCloudApi setOrderStatTtl(long duration, TimeUnit unit) {
+        this.orderStatTtlNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 已打印订单的保存时间，在这段时间内重复查询直接返回已打印
+     */
+    public CachingCloudApi setPrintedOrderTtl(long duration, TimeUnit unit) {
+        this.printedOrderTtlNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 待打印订单的有效期
+     */
+    public CachingCloudApi setWaitingOrderTtl(long duration, TimeUnit unit) {
+        this.waitingOrderTtlNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 最多记录的订单状态数量，默认 1048576，超出时先淘汰最早过期的订单
+     */
+    public CachingCloudApi setMaximumOrderSize(int maximumOrderSize) {
+        if (maximumOrderSize < 1) {
+            throw new IllegalArgumentException("maximumOrderSize must be positive");
+        }
+        this.orderStatuses.setMaximumSize(maximumOrderSize);
+        return this;
+    }
+
+    /**
+     * 最多缓存的设备状态数量，今天的订单统计使用同样的上限，超出时淘汰最久未使用的记录
+     */
+    public CachingCloudApi setMaximumSize(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        resize(this.devices, maximumSize);
+        resize(this.recentOrderStats, maximumSize);
+        this.tombstones.lock.lock();
+        try {
+            this.tombstones.maximumSize = maximumSize;
+        } finally {
+            this.tombstones.lock.unlock();
+        }
+        return this;
+    }
+
+    private static void resize(LruMap<?> map, int maximumSize) {
+        map.lock.lock();
+        try {
+            map.maximumSize = maximumSize;
+            while (map.size() > maximumSize) {
+                map.remove(map.keySet().iterator().next());
+            }
+        } finally {
+            map.lock.unlock();
+        }
+    }
+
+    /**
+     * 判断订单统计的日期是否已经过去，与 zoneId 一起计算今天
+     */
+    public CachingCloudApi setCloudClock(CloudClock cloudClock) {
+        this.cloudClock = cloudClock;
+        return this;
+    }
+
+    /**
+     * 厂商划分订单日期使用的时区，默认 VENDOR_ZONE_ID，与服务器的系统时区无关
+     */
+    public CachingCloudApi setZoneId(ZoneId zoneId) {
+        this.zoneId = zoneId;
+        return this;
+    }
+
+    /**
+     * 历史订单统计的持久化，查询时先查内存再查 store，新查到的历史统计同时写入 store
+     */
+    public CachingCloudApi setOrderStatStore(DeviceOrderStatStore orderStatStore) {
+        this.orderStatStore = orderStatStore;
+        return this;
+    }
+
+    /**
+     * 执行后台刷新的执行器
+     */
+    public CachingCloudApi setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 计时用的纳秒时钟，默认 System.nanoTime
+     */
+    public CachingCloudApi setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * 已发起的后台刷新次数
+     */
+    public long getRefreshCount() {
+        return this.refreshes.sum();
+    }
+
+    public double getHitRatio() {
+        long hits = this.hits.sum();
+        long total = hits + this.misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 缓存的设备状态数量
+     */
+    public int size() {
+        this.devices.lock.lock();
+        try {
+            return this.devices.size();
+        } finally {
+            this.devices.lock.unlock();
+        }
+    }
+
+    /**
+     * 内存中的历史订单统计数量
+     */
+    public int getHistoryOrderStatCount() {
+        return this.historyOrderStats.size();
+    }
+
+    /**
+     * 记录的订单状态数量，包括尚未清理的过期记录
+     */
+    public int getOrderStatusCount() {
+        return this.orderStatuses.size();
+    }
+
+    /**
+     * 清除设备状态与今天的订单统计，历史订单统计不受影响
+     */
+    public void invalidate(Device device) {
+        this.tombstones.mark(device.getSn(), this.invalidations.incrementAndGet());
+        this.devices.lock.lock();
+        try {
+            this.devices.remove(device.getSn());
+        } finally {
+            this.devices.lock.unlock();
+        }
+        String prefix = device.getSn() + "@";
+        this.recentOrderStats.lock.lock();
+        try {
+            this.recentOrderStats.keySet().removeIf(key -> key.startsWith(prefix));
+        } finally {
+            this.recentOrderStats.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        this.tombstones.markAll(this.invalidations.incrementAndGet());
+        this.devices.lock.lock();
+        try {
+            this.devices.clear();
+        } finally {
+            this.devices.lock.unlock();
+        }
+        this.recentOrderStats.lock.lock();
+        try {
+            this.recentOrderStats.clear();
+        } finally {
+            this.recentOrderStats.lock.unlock();
+        }
+        this.orderStatuses.clear();
+    }
+
+    private DeviceEntry get(String sn) {
+        this.devices.lock.lock();
+        try {
+            return this.devices.get(sn);
+        } finally {
+            this.devices.lock.unlock();
+        }
+    }
+
+    /**
+     * 查询期间这台设备被清除过时丢弃查询结果，避免旧状态在清除之后写回缓存。
+     * 清除先记录序号再删除缓存，这里在同一把锁内检查并写入，两者不会交错
+     */
+    private void put(String sn, Device device, long loadedAt, long invalidation) {
+        this.devices.lock.lock();
+        try {
+            if (!this.tombstones.isInvalidatedSince(sn, invalidation)) {
+                this.devices.put(sn, new DeviceEntry(device, loadedAt));
+            }
+        } finally {
+            this.devices.lock.unlock();
+        }
+    }
+
+    private void refresh(String sn, DeviceEntry entry) {
+        long invalidation = this.invalidations.get();
+        try {
+            Device device = entry.device.copy();
+            CloudResponse<Device> response = this.delegate.queryDevice(device);
+            if (response.isSuccess()) {
+                this.put(sn, device, this.ticker.getAsLong(), invalidation);
+                return;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        entry.refreshing.set(false);
+    }
+
+    @Override
+    public CloudResponse<Device> queryDevice(Device device) {
+        String sn = device.getSn();
+        DeviceEntry entry = this.get(sn);
+        long now = this.ticker.getAsLong();
+        if (entry != null && now - entry.loadedAt < this.ttlNanos) {
+            this.hits.increment();
+            if (now - entry.loadedAt >= this.refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+                this.refreshes.increment();
+                try {
+                    this.executor.execute(() -> this.refresh(sn, entry));
+                } catch (RejectedExecutionException e) {
+                    entry.refreshing.set(false);
+                }
+            }
+            CloudStates.copy(entry.device, device);
+            return CloudResponse.ofSuccess(device);
+        }
+        this.misses.increment();
+        long invalidation = this.invalidations.get();
+        CloudResponse<Device> response = this.delegate.queryDevice(device);
+        if (response.isSuccess()) {
+            this.put(sn, response.getSuccessEntity().copy(), now, invalidation);
+        }
+        return response;
+    }
+
+    @Override
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        CloudResponse<Boolean> response = this.delegate.updateDevice(device);
+        if (response.isSuccess()) {
+            this.invalidate(device);
+        }
+        return response;
+    }
+
+    @Override
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        CloudResponse<Boolean> response = this.delegate.deleteDevice(device);
+        if (response.isSuccess()) {
+            this.invalidate(device);
+        }
+        return response;
+    }
+
+    @Override
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        List<CloudResponse<Device>> responses = this.delegate.deleteDevices(devices);
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i).isSuccess()) {
+                this.invalidate(devices.get(i));
+            }
+        }
+        return responses;
+    }
+
+    @Override
+    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+        CloudResponse<Boolean> response = this.delegate.clearDeviceOrders(device);
+        if (response.isSuccess()) {
+            this.invalidate(device);
+        }
+        return response;
+    }
+
+    @Override
+    public CloudResponse<Boolean> addDevice(Device device) {
+        return this.delegate.addDevice(device);
+    }
+
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.delegate.addDevices(devices);
+    }
+
+    @Override
+    public CloudResponse<Order> printMsgOrder(Device device, Order order) {
+        return this.delegate.printMsgOrder(device, order);
+    }
+
+    @Override
+    public CloudResponse<Order> printLabelOrder(Device device, Order order) {
+        return this.delegate.printLabelOrder(device, order);
+    }
+
+    @Override
+    public CloudResponse<Order> queryOrder(Order order) {
+        if (order.getId() == null) {
+            return this.delegate.queryOrder(order);
+        }
+        long now = this.ticker.getAsLong();
+        byte state = this.orderStatuses.get(order.getId(), now);
+        if (state == OrderStatusTable.PRINTED) {
+            this.hits.increment();
+            return CloudResponse.ofSuccess(order.markPrinted());
+        }
+        if (state == OrderStatusTable.WAITING) {
+            this.hits.increment();
+            return CloudResponse.ofSuccess(order.markWaiting());
+        }
+        this.misses.increment();
+        CloudResponse<Order> response = this.delegate.queryOrder(order);
+        if (response.isSuccess()) {
+            if (response.getSuccessEntity().isPrinted()) {
+                this.orderStatuses.put(order.getId(), OrderStatusTable.PRINTED, now + this.printedOrderTtlNanos, now);
+            } else {
+                this.orderStatuses.put(order.getId(), OrderStatusTable.WAITING, now + this.waitingOrderTtlNanos, now);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 无法解析的日期按今天处理，只做短期缓存
+     */
+    private boolean isHistory(String date) {
+        if (date == null) {
+            return false;
+        }
+        try {
+            LocalDate today = Instant.ofEpochSecond(this.cloudClock.getEpochSecond()).atZone(this.zoneId).toLocalDate();
+            return LocalDate.parse(date).isBefore(today);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private CloudResponse<DeviceOrderStat> queryHistoryOrders(Device device, QueryOption queryOption, String key) {
+        DeviceOrderStat stat = this.historyOrderStats.get(key);
+        DeviceOrderStatStore store = this.orderStatStore;
+        if (stat == null && store != null) {
+            stat = store.get(device.getSn(), queryOption.getDate());
+            if (stat != null) {
+                this.historyOrderStats.putIfAbsent(key, stat);
+            }
+        }
+        if (stat != null) {
+            this.hits.increment();
+            return CloudResponse.ofSuccess(stat);
+        }
+        this.misses.increment();
+        CloudResponse<DeviceOrderStat> response = this.delegate.queryDeviceOrders(device, queryOption);
+        if (response.isSuccess()) {
+            this.historyOrderStats.put(key, response.getSuccessEntity());
+            if (store != null) {
+                store.put(response.getSuccessEntity());
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        String key = device.getSn() + "@" + queryOption.getDate();
+        if (this.isHistory(queryOption.getDate())) {
+            return this.queryHistoryOrders(device, queryOption, key);
+        }
+        long now = this.ticker.getAsLong();
+        OrderStatEntry entry;
+        this.recentOrderStats.lock.lock();
+        try {
+            entry = this.recentOrderStats.get(key);
+        } finally {
+            this.recentOrderStats.lock.unlock();
+        }
+        if (entry != null && now - entry.loadedAt < this.orderStatTtlNanos) {
+            this.hits.increment();
+            return CloudResponse.ofSuccess(entry.stat);
+        }
+        this.misses.increment();
+        long invalidation = this.invalidations.get();
+        CloudResponse<DeviceOrderStat> response = this.delegate.queryDeviceOrders(device, queryOption);
+        if (response.isSuccess()) {
+            this.recentOrderStats.lock.lock();
+            try {
+                if (!this.tombstones.isInvalidatedSince(device.getSn(), invalidation)) {
+                    this.recentOrderStats.put(key, new OrderStatEntry(response.getSuccessEntity(), now));
+                }
+            } finally {
+                this.recentOrderStats.lock.unlock();
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingCloudApi{" +
+                "size=" + size() +
+                ", historyOrderStats=" + getHistoryOrderStatCount() +
+                ", orderStatuses=" + getOrderStatusCount() +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", refreshes=" + getRefreshCount() +
+                '}';
+    }
+}
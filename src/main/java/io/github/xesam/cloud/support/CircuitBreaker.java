@@ -0,0 +1,214 @@
+package io.github.xesam.cloud.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 按最近 windowSize 次调用的失败率与慢调用率判断是否打开。
+ * 打开后直接拒绝调用，经过 openDuration 进入半开状态，放行 halfOpenCalls 次探测调用，探测结果正常则关闭，否则重新打开。
+ * 每次状态变化开始新的一代，调用结果只计入发放许可时的那一代，关闭时放行的慢调用不会被当成半开状态的探测
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 状态变化的回调，在完成调用的线程上执行
+     */
+    public interface Listener {
+        void onStateChange(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    /**
+     * 调用许可，记录发放时的状态与代数
+     */
+    public static final class Permit {
+        private final long generation;
+        private final State state;
+
+        private Permit(long generation, State state) {
+            this.generation = generation;
+            this.state = state;
+        }
+
+        public State getState() {
+            return state;
+        }
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final CircuitBreakerOption option;
+    private final LongSupplier ticker;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final byte[] window;
+    private State state = State.CLOSED;
+    private long generation;
+    private Permit permit = new Permit(0, State.CLOSED);
+    private int position;
+    private int calls;
+    private int failedCalls;
+    private int slowCalls;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenResults;
+    private int halfOpenFailedCalls;
+    private int halfOpenSlowCalls;
+
+    public CircuitBreaker(String name, CircuitBreakerOption option, LongSupplier ticker) {
+        this.name = name;
+        this.option = option;
+        this.ticker = ticker;
+        this.window = new byte[option.getWindowSize()];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        this.lock.lock();
+        try {
+            return this.state;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    private void fire(State from, State to) {
+        if (from == to) {
+            return;
+        }
+        for (Listener listener : this.listeners) {
+            listener.onStateChange(this, from, to);
+        }
+    }
+
+    /**
+     * 调用前获取许可，返回 null 时不能发出请求；否则必须在调用结束后用这个许可调用 onResult
+     */
+    public Permit tryAcquire() {
+        State from;
+        Permit permit;
+        this.lock.lock();
+        try {
+            from = this.state;
+            if (this.state == State.CLOSED) {
+                return this.permit;
+            }
+            if (this.state == State.OPEN) {
+                if (this.ticker.getAsLong() - this.openedAt < this.option.getOpenNanos()) {
+                    return null;
+                }
+                this.transitionTo(State.HALF_OPEN);
+            }
+            if (this.halfOpenPermits >= this.option.getHalfOpenCalls()) {
+                return null;
+            }
+            this.halfOpenPermits++;
+            permit = this.permit;
+        } finally {
+            this.lock.unlock();
+        }
+        this.fire(from, State.HALF_OPEN);
+        return permit;
+    }
+
+    /**
+     * 许可发放之后状态已经变化过时，结果属于上一代，直接忽略
+     */
+    public void onResult(Permit permit, long durationNanos, boolean failed) {
+        byte outcome = (byte) ((failed ? FAILED : 0) | (durationNanos >= this.option.getSlowCallNanos() ? SLOW : 0));
+        State from;
+        State to;
+        this.lock.lock();
+        try {
+            from = this.state;
+            if (permit.generation != this.generation) {
+                return;
+            }
+            if (this.state == State.CLOSED) {
+                this.record(outcome);
+                if (this.calls >= this.option.getMinimumCalls()
+                        && this.exceeds(this.failedCalls, this.slowCalls, this.calls)) {
+                    this.transitionTo(State.OPEN);
+                }
+            } else if (this.state == State.HALF_OPEN) {
+                this.halfOpenResults++;
+                this.halfOpenFailedCalls += outcome & FAILED;
+                this.halfOpenSlowCalls += (outcome & SLOW) >> 1;
+                if (this.exceeds(this.halfOpenFailedCalls, this.halfOpenSlowCalls, this.option.getHalfOpenCalls())) {
+                    this.transitionTo(State.OPEN);
+                } else if (this.halfOpenResults >= this.option.getHalfOpenCalls()) {
+                    this.transitionTo(State.CLOSED);
+                }
+            }
+            to = this.state;
+        } finally {
+            this.lock.unlock();
+        }
+        this.fire(from, to);
+    }
+
+    private boolean exceeds(int failedCalls, int slowCalls, int calls) {
+        return failedCalls * 100 >= this.option.getFailureRateThreshold() * calls
+                || slowCalls * 100 >= this.option.getSlowCallRateThreshold() * calls;
+    }
+
+    private void record(byte outcome) {
+        if (this.calls == this.window.length) {
+            byte evicted = this.window[this.position];
+            this.failedCalls -= evicted & FAILED;
+            this.slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            this.calls++;
+        }
+        this.window[this.position] = outcome;
+        this.failedCalls += outcome & FAILED;
+        this.slowCalls += (outcome & SLOW) >> 1;
+        this.position = (this.position + 1) % this.window.length;
+    }
+
+    private void transitionTo(State state) {
+        this.state = state;
+        this.generation++;
+        this.permit = new Permit(this.generation, state);
+        this.position = 0;
+        this.calls = 0;
+        this.failedCalls = 0;
+        this.slowCalls = 0;
+        this.halfOpenPermits = 0;
+        this.halfOpenResults = 0;
+        this.halfOpenFailedCalls = 0;
+        this.halfOpenSlowCalls = 0;
+        if (state == State.OPEN) {
+            this.openedAt = this.ticker.getAsLong();
+        }
+    }
+
+    @Override
+    public String toString() {
+        this.lock.lock();
+        try {
+            return "CircuitBreaker{" +
+                    "name='" + name + '\'' +
+                    ", state=" + state +
+                    ", calls=" + calls +
+                    ", failedCalls=" + failedCalls +
+                    ", slowCalls=" + slowCalls +
+                    '}';
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.xesam.cloud.support;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器配置
+ */
+public final class CircuitBreakerOption {
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private int failureRateThreshold = 50;
+    private int slowCallRateThreshold = 80;
+    private long slowCallNanos = TimeUnit.SECONDS.toNanos(2);
+    private long openNanos = TimeUnit.SECONDS.toNanos(10);
+    private int halfOpenCalls = 3;
+
+    public CircuitBreakerOption() {
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 按最近多少次调用统计失败率与慢调用率
+     */
+    public CircuitBreakerOption setWindowSize(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * 统计窗口内调用次数达到这个值之后才会打开熔断器
+     */
+    public CircuitBreakerOption setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * 失败率达到这个百分比时打开熔断器
+     */
+    public CircuitBreakerOption setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * 慢调用率达到这个百分比时打开熔断器
+     */
+    public CircuitBreakerOption setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        return this;
+    }
+
+    public long getSlowCallNanos() {
+        return slowCallNanos;
+    }
+
+    /**
+     * 耗时超过这个时间的调用算作慢调用
+     */
+    public CircuitBreakerOption setSlowCallDuration(long duration, TimeUnit unit) {
+        this.slowCallNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public long getOpenNanos() {
+        return openNanos;
+    }
+
+    /**
+     * 熔断器打开后，经过这个时间进入半开状态
+     */
+    public CircuitBreakerOption setOpenDuration(long duration, TimeUnit unit) {
+        this.openNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * 半开状态下放行的探测调用数量，全部完成后决定关闭还是重新打开
+     */
+    public CircuitBreakerOption setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("halfOpenCalls must be positive");
+        }
+        this.halfOpenCalls = halfOpenCalls;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerOption{" +
+                "windowSize=" + windowSize +
+                ", minimumCalls=" + minimumCalls +
+                ", failureRateThreshold=" + failureRateThreshold +
+                ", slowCallRateThreshold=" + slowCallRateThreshold +
+                ", slowCallNanos=" + slowCallNanos +
+                ", openNanos=" + openNanos +
+                ", halfOpenCalls=" + halfOpenCalls +
+                '}';
+    }
+}
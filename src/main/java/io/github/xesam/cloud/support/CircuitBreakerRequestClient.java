@@ -0,0 +1,97 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.RequestClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 按厂商主机分别熔断。某个厂商接口变慢或持续失败时直接返回 FailReason.CIRCUIT_OPEN，不再占用线程等待超时，其他厂商不受影响。
+ * 请求未发出、结果不确定和厂商 5xx 算作失败，厂商的业务错误和其他 HTTP 状态不算
+ */
+public class CircuitBreakerRequestClient extends ForwardingRequestClient {
+    private final CircuitBreakerOption option;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final List<CircuitBreaker.Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile LongSupplier ticker = System::nanoTime;
+
+    public CircuitBreakerRequestClient(RequestClient<String> delegate) {
+        this(delegate, new CircuitBreakerOption());
+    }
+
+    public CircuitBreakerRequestClient(RequestClient<String> delegate, CircuitBreakerOption option) {
+        super(delegate);
+        this.option = option;
+    }
+
+    /**
+     * 监听所有主机熔断器的状态变化
+     */
+    public CircuitBreakerRequestClient addListener(CircuitBreaker.Listener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * 计时用的纳秒时钟，默认 System.nanoTime
+     */
+    public CircuitBreakerRequestClient setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return this.circuitBreakers;
+    }
+
+    public CircuitBreaker getCircuitBreaker(String url) {
+        String host = hostOf(url);
+        CircuitBreaker existing = this.circuitBreakers.get(host);
+        if (existing != null) {
+            return existing;
+        }
+        return this.circuitBreakers.computeIfAbsent(host, key -> {
+            CircuitBreaker circuitBreaker = new CircuitBreaker(key, this.option, () -> this.ticker.getAsLong());
+            circuitBreaker.addListener((breaker, from, to) -> {
+                for (CircuitBreaker.Listener listener : this.listeners) {
+                    listener.onStateChange(breaker, from, to);
+                }
+            });
+            return circuitBreaker;
+        });
+    }
+
+    static boolean isFailure(CloudResponse<?> response) {
+        if (response.isSuccess()) {
+            return false;
+        }
+        CloudResponse.FailReason reason = response.getFailReason();
+        return reason == CloudResponse.FailReason.NOT_SENT
+                || reason == CloudResponse.FailReason.AMBIGUOUS
+                || reason == CloudResponse.FailReason.SERVER_ERROR;
+    }
+
+    @Override
+    protected <R> CloudResponse<R> execute(String url, Supplier<CloudResponse<R>> call) {
+        CircuitBreaker circuitBreaker = this.getCircuitBreaker(url);
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            return CloudResponse.ofFail("circuit breaker is open: " + circuitBreaker.getName(), CloudResponse.FailReason.CIRCUIT_OPEN);
+        }
+        long start = this.ticker.getAsLong();
+        boolean failed = true;
+        try {
+            CloudResponse<R> response = call.get();
+            failed = isFailure(response);
+            return response;
+        } finally {
+            circuitBreaker.onResult(permit, this.ticker.getAsLong() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.xesam.cloud.support;
+
+/**
+ * CloudApi 的各个接口，按重复调用是否安全分类
+ */
+public enum CloudMethod {
+    ADD_DEVICE(false),
+    DELETE_DEVICE(false),
+    QUERY_DEVICE(true),
+    UPDATE_DEVICE(false),
+    PRINT_MSG_ORDER(false),
+    PRINT_LABEL_ORDER(false),
+    QUERY_ORDER(true),
+    QUERY_DEVICE_ORDERS(true),
+    CLEAR_DEVICE_ORDERS(false);
+
+    private final boolean read;
+
+    CloudMethod(boolean read) {
+        this.read = read;
+    }
+
+    /**
+     * 只读接口重复调用不会改变厂商的数据
+     */
+    public boolean isRead() {
+        return read;
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.Device;
+import io.github.xesam.cloud.Order;
+
+/**
+ * 把查询得到的状态写回调用方的对象，使装饰器返回的结果与直接调用厂商接口一致。
+ * 复制 queryDevice 与 queryOrder 可能设置的全部字段；厂商没有返回的字段保持调用方原来的值
+ */
+final class CloudStates {
+    private CloudStates() {
+    }
+
+    static void copy(Device from, Device to) {
+        if (from == to) {
+            return;
+        }
+        if (from.isOnline()) {
+            to.markOnline();
+        } else {
+            to.markOffline();
+        }
+        to.setStatus(from.getStatus()).setVoice(from.getVoice()).setVolume(from.getVolume());
+        if (from.getName() != null) {
+            to.setName(from.getName());
+        }
+        if (from.getCardno() != null) {
+            to.setCardno(from.getCardno());
+        }
+        if (from.getCutMode() != null) {
+            to.setCutMode(from.getCutMode());
+        }
+    }
+
+    static void copy(Order from, Order to) {
+        if (from == to) {
+            return;
+        }
+        if (from.isPrinted()) {
+            to.markPrinted();
+        } else {
+            to.markWaiting();
+        }
+        if (from.getCreateTime() != null) {
+            to.setCreateTime(from.getCreateTime());
+        }
+        if (from.getPrintTime() != null) {
+            to.setPrintTime(from.getPrintTime());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同的并发读请求：queryDevice、queryOrder、queryDeviceOrders 在同一时刻对同一设备或订单只发出一次厂商请求，
+ * 其他调用等待并共用这次结果。只合并进行中的请求，不缓存已完成的结果；写操作直接交给 delegate
+ */
+public class CoalescingCloudApi implements CloudApi {
+    private final CloudApi delegate;
+    private final ConcurrentMap<String, CompletableFuture<CloudResponse<?>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingCloudApi(CloudApi delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 实际发给厂商的读请求数量
+     */
+    public long getCallCount() {
+        return this.calls.sum();
+    }
+
+    /**
+     * 合并到其他进行中请求上的读请求数量
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    public double getHitRatio() {
+        long coalesced = this.coalesced.sum();
+        long total = coalesced + this.calls.sum();
+        return total == 0 ? 0 : (double) coalesced / total;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CloudResponse<T> coalesce(String key, Supplier<CloudResponse<T>> call) {
+        CompletableFuture<CloudResponse<?>> leader = new CompletableFuture<>();
+        CompletableFuture<CloudResponse<?>> existing = this.inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            this.coalesced.increment();
+            return (CloudResponse<T>) existing.join();
+        }
+        this.calls.increment();
+        try {
+            CloudResponse<T> response = call.get();
+            leader.complete(response);
+            return response;
+        } catch (Throwable e) {
+            // Error 或者绕过编译检查抛出的受检异常也要唤醒等待的调用，否则它们会一直阻塞
+            leader.complete(CloudResponse.ofFail(String.valueOf(e.getMessage())));
+            throw e;
+        } finally {
+            this.inFlight.remove(key, leader);
+        }
+    }
+
+    /**
+     * 共用结果时，把查询到的状态写回调用方自己的 Device，与直接调用 delegate 的效果一致
+     */
+    @Override
+    public CloudResponse<Device> queryDevice(Device device) {
+        CloudResponse<Device> response = this.coalesce("device:" + device.getSn(), () -> this.delegate.queryDevice(device));
+        if (!response.isSuccess()) {
+            return response;
+        }
+        CloudStates.copy(response.getSuccessEntity(), device);
+        return CloudResponse.ofSuccess(device);
+    }
+
+    @Override
+    public CloudResponse<Order> queryOrder(Order order) {
+        CloudResponse<Order> response = this.coalesce("order:" + order.getId(), () -> this.delegate.queryOrder(order));
+        if (!response.isSuccess()) {
+            return response;
+        }
+        CloudStates.copy(response.getSuccessEntity(), order);
+        return CloudResponse.ofSuccess(order);
+    }
+
+    @Override
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return this.coalesce("orders:" + device.getSn() + "@" + queryOption.getDate(), () -> this.delegate.queryDeviceOrders(device, queryOption));
+    }
+
+    @Override
+    public CloudResponse<Boolean> addDevice(Device device) {
+        return this.delegate.addDevice(device);
+    }
+
+    @Override
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        return this.delegate.deleteDevice(device);
+    }
+
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.delegate.addDevices(devices);
+    }
+
+    @Override
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        return this.delegate.deleteDevices(devices);
+    }
+
+    @Override
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        return this.delegate.updateDevice(device);
+    }
+
+    @Override
+    public CloudResponse<Order> printMsgOrder(Device device, Order order) {
+        return this.delegate.printMsgOrder(device, order);
+    }
+
+    @Override
+    public CloudResponse<Order> printLabelOrder(Device device, Order order) {
+        return this.delegate.printLabelOrder(device, order);
+    }
+
+    @Override
+    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+        return this.delegate.clearDeviceOrders(device);
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingCloudApi{" +
+                "calls=" + getCallCount() +
+                ", coalesced=" + getCoalescedCount() +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.xesam.cloud.support;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应并发限制配置
+ */
+public final class ConcurrencyLimitOption {
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private int alpha = 3;
+    private int beta = 6;
+    private double backoffRatio = 0.9;
+    private long probeNanos = TimeUnit.SECONDS.toNanos(30);
+    private int maxQueueSize = 50;
+    private long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public ConcurrencyLimitOption() {
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public ConcurrencyLimitOption setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+        return this;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public ConcurrencyLimitOption setMinLimit(int minLimit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("minLimit must be positive");
+        }
+        this.minLimit = minLimit;
+        return this;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public ConcurrencyLimitOption setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+        return this;
+    }
+
+    public int getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * 估算的厂商排队请求数少于这个值时增加并发限制
+     */
+    public ConcurrencyLimitOption setAlpha(int alpha) {
+        this.alpha = alpha;
+        return this;
+    }
+
+    public int getBeta() {
+        return beta;
+    }
+
+    /**
+     * 估算的厂商排队请求数超过这个值时减少并发限制
+     */
+    public ConcurrencyLimitOption setBeta(int beta) {
+        this.beta = beta;
+        return this;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * 请求超时或者厂商 5xx 时并发限制乘以这个系数，取值在 0 到 1 之间
+     */
+    public ConcurrencyLimitOption setBackoffRatio(double backoffRatio) {
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+        }
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+
+    public long getProbeNanos() {
+        return probeNanos;
+    }
+
+    /**
+     * 无负载耗时取最近这段时间内的最小耗时，过期后重新测量，以便适应厂商耗时的长期变化
+     */
+    public ConcurrencyLimitOption setProbeInterval(long duration, TimeUnit unit) {
+        this.probeNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * 达到并发限制时最多排队等待的请求数，超过后直接拒绝
+     */
+    public ConcurrencyLimitOption setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * 排队等待的最长时间，超过后拒绝
+     */
+    public ConcurrencyLimitOption setMaxWait(long duration, TimeUnit unit) {
+        this.maxWaitNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitOption{" +
+                "initialLimit=" + initialLimit +
+                ", minLimit=" + minLimit +
+                ", maxLimit=" + maxLimit +
+                ", alpha=" + alpha +
+                ", beta=" + beta +
+                ", backoffRatio=" + backoffRatio +
+                ", probeNanos=" + probeNanos +
+                ", maxQueueSize=" + maxQueueSize +
+                ", maxWaitNanos=" + maxWaitNanos +
+                '}';
+    }
+}
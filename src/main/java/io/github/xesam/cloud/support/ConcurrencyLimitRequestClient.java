@@ -0,0 +1,88 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.RequestClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 按厂商主机分别限制并发请求数，限制根据厂商的响应耗时自动调整。
+ * 厂商变慢时限制随之降低，多出的请求短暂排队后直接返回 FailReason.LOCALLY_REJECTED，不会在连接池中堆积到超时
+ */
+public class ConcurrencyLimitRequestClient extends ForwardingRequestClient {
+    private final ConcurrencyLimitOption option;
+    private final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private volatile LongSupplier ticker = System::nanoTime;
+
+    public ConcurrencyLimitRequestClient(RequestClient<String> delegate) {
+        this(delegate, new ConcurrencyLimitOption());
+    }
+
+    public ConcurrencyLimitRequestClient(RequestClient<String> delegate, ConcurrencyLimitOption option) {
+        super(delegate);
+        this.option = option;
+    }
+
+    /**
+     * 计时用的纳秒时钟，默认 System.nanoTime
+     */
+    public ConcurrencyLimitRequestClient setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return this.limiters;
+    }
+
+    public ConcurrencyLimiter getLimiter(String url) {
+        String host = hostOf(url);
+        ConcurrencyLimiter limiter = this.limiters.get(host);
+        if (limiter != null) {
+            return limiter;
+        }
+        return this.limiters.computeIfAbsent(host, key -> new ConcurrencyLimiter(key, this.option, () -> this.ticker.getAsLong()));
+    }
+
+    @Override
+    protected <R> CloudResponse<R> execute(String url, Supplier<CloudResponse<R>> call) {
+        ConcurrencyLimiter limiter = this.getLimiter(url);
+        if (!limiter.tryAcquire()) {
+            return CloudResponse.ofFail("concurrency limit exceeded: " + limiter.getName(), CloudResponse.FailReason.LOCALLY_REJECTED);
+        }
+        long start = this.ticker.getAsLong();
+        CloudResponse<R> response = null;
+        try {
+            response = call.get();
+            return response;
+        } finally {
+            if (response == null) {
+                limiter.onIgnored();
+            } else if (response.isSuccess()) {
+                limiter.onSample(this.ticker.getAsLong() - start);
+            } else if (response.getFailReason() == null) {
+                // 没有失败原因时按 UNKNOWN 处理
+                limiter.onSample(this.ticker.getAsLong() - start);
+            } else {
+                switch (response.getFailReason()) {
+                    case AMBIGUOUS:
+                    case SERVER_ERROR:
+                        limiter.onDropped();
+                        break;
+                    case NOT_SENT:
+                    case THROTTLED:
+                    case CIRCUIT_OPEN:
+                    case LOCALLY_REJECTED:
+                        limiter.onIgnored();
+                        break;
+                    default:
+                        limiter.onSample(this.ticker.getAsLong() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.xesam.cloud.support;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 按 Vegas 算法调整的并发限制。
+ * 以一段时间内的最小耗时作为无负载耗时 rttNoLoad，每次调用完成后估算厂商排队的请求数 queue = limit * (1 - rttNoLoad / rtt)：
+ * 少于 alpha 时限制加一，超过 beta 时减一；请求超时或厂商 5xx 时按 backoffRatio 乘性减少。
+ * 只有在实际并发接近限制时才增加限制，避免空闲时限制无限增长。
+ * 排队使用 ReentrantLock 而不是 synchronized，虚拟线程排队时不会占住载体线程
+ */
+public class ConcurrencyLimiter {
+    private final String name;
+    private final ConcurrencyLimitOption option;
+    private final LongSupplier ticker;
+    private final LongAdder rejected = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private int limit;
+    private int inFlight;
+    private int waiting;
+    private long rttNoLoadNanos;
+    private long rttNoLoadAt;
+
+    public ConcurrencyLimiter(String name, ConcurrencyLimitOption option, LongSupplier ticker) {
+        this.name = name;
+        this.option = option;
+        this.ticker = ticker;
+        this.limit = Math.max(option.getMinLimit(), Math.min(option.getMaxLimit(), option.getInitialLimit()));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        this.lock.lock();
+        try {
+            return this.limit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        this.lock.lock();
+        try {
+            return this.inFlight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        this.lock.lock();
+        try {
+            return this.waiting;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 当前使用的无负载耗时，还没有样本时为 0
+     */
+    public long getRttNoLoadNanos() {
+        this.lock.lock();
+        try {
+            return this.rttNoLoadNanos;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 因为排队已满或等待超时被拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * 获取一个并发许可，达到限制时最多排队 maxWait；返回 true 时必须在调用结束后调用 onSample 或 onDropped 或 onIgnored
+     */
+    public boolean tryAcquire() {
+        this.lock.lock();
+        try {
+            if (this.inFlight < this.limit) {
+                this.inFlight++;
+                return true;
+            }
+            long waitNanos = this.option.getMaxWaitNanos();
+            if (this.waiting < this.option.getMaxQueueSize() && waitNanos > 0) {
+                this.waiting++;
+                try {
+                    while (this.inFlight >= this.limit && waitNanos > 0) {
+                        waitNanos = this.available.awaitNanos(waitNanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    this.waiting--;
+                }
+                if (this.inFlight < this.limit) {
+                    this.inFlight++;
+                    return true;
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        this.rejected.increment();
+        return false;
+    }
+
+    /**
+     * 调用正常完成，rttNanos 为调用耗时
+     */
+    public void onSample(long rttNanos) {
+        this.lock.lock();
+        try {
+            int inFlight = this.inFlight;
+            this.release();
+            long now = this.ticker.getAsLong();
+            if (this.rttNoLoadNanos == 0 || rttNanos < this.rttNoLoadNanos || now - this.rttNoLoadAt >= this.option.getProbeNanos()) {
+                this.rttNoLoadNanos = Math.max(1, rttNanos);
+                this.rttNoLoadAt = now;
+            }
+            double queue = this.limit * (1 - (double) this.rttNoLoadNanos / Math.max(1, rttNanos));
+            if (queue > this.option.getBeta()) {
+                this.setLimit(this.limit - 1);
+            } else if (queue < this.option.getAlpha() && inFlight * 2 >= this.limit) {
+                this.setLimit(this.limit + 1);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 调用超时或者厂商过载
+     */
+    public void onDropped() {
+        this.lock.lock();
+        try {
+            this.release();
+            this.setLimit((int) (this.limit * this.option.getBackoffRatio()));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 调用结果不能反映厂商的负载，比如请求没有发出，只归还许可
+     */
+    public void onIgnored() {
+        this.lock.lock();
+        try {
+            this.release();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release() {
+        this.inFlight--;
+        this.available.signal();
+    }
+
+    private void setLimit(int limit) {
+        int next = Math.max(this.option.getMinLimit(), Math.min(this.option.getMaxLimit(), limit));
+        if (next > this.limit) {
+            this.available.signalAll();
+        }
+        this.limit = next;
+    }
+
+    @Override
+    public String toString() {
+        this.lock.lock();
+        try {
+            return "ConcurrencyLimiter{" +
+                    "name='" + name + '\'' +
+                    ", limit=" + limit +
+                    ", inFlight=" + inFlight +
+                    ", waiting=" + waiting +
+                    ", rttNoLoadNanos=" + rttNoLoadNanos +
+                    '}';
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.DeviceOrderStat;
+
+/**
+ * 历史日期的订单统计不会再变化，可以长期保存。一个 store 只保存同一个厂商账号的数据
+ */
+public interface DeviceOrderStatStore {
+    /**
+     * 没有保存过时返回 null
+     */
+    DeviceOrderStat get(String deviceSn, String orderDate);
+
+    void put(DeviceOrderStat stat);
+}
@@ -0,0 +1,96 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.DeviceOrderStat;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 保存在文件里的订单统计，每条统计追加一行 sn、日期、已打印数、待打印数，用制表符分隔。
+ * 创建时读入已有的全部记录；不同厂商账号需要使用不同的文件。
+ * 写文件时持有的是 ReentrantLock，虚拟线程等待写入时不会占住载体线程
+ */
+public class FileDeviceOrderStatStore implements DeviceOrderStatStore, AutoCloseable {
+    private final ConcurrentMap<String, DeviceOrderStat> stats = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Writer writer;
+
+    public FileDeviceOrderStatStore(Path file) throws IOException {
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    DeviceOrderStat stat = parse(line);
+                    if (stat != null) {
+                        this.stats.put(key(stat.getDeviceSn(), stat.getOrderDate()), stat);
+                    }
+                }
+            }
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String key(String deviceSn, String orderDate) {
+        return deviceSn + "@" + orderDate;
+    }
+
+    /**
+     * 进程中断时最后一行可能不完整，无法解析的行直接忽略
+     */
+    private static DeviceOrderStat parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            return new DeviceOrderStat(fields[0], fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return this.stats.size();
+    }
+
+    @Override
+    public DeviceOrderStat get(String deviceSn, String orderDate) {
+        return this.stats.get(key(deviceSn, orderDate));
+    }
+
+    @Override
+    public void put(DeviceOrderStat stat) {
+        if (this.stats.putIfAbsent(key(stat.getDeviceSn(), stat.getOrderDate()), stat) != null) {
+            return;
+        }
+        String line = stat.getDeviceSn() + "\t" + stat.getOrderDate() + "\t" + stat.getPrintedCount() + "\t" + stat.getWaitingCount() + "\n";
+        this.writeLock.lock();
+        try {
+            this.writer.write(line);
+            this.writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writeLock.lock();
+        try {
+            this.writer.close();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.DeviceStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一批设备的状态快照，顺序与查询时传入的设备一致
+ */
+public final class FleetSnapshot {
+    private final List<DeviceStatus> statuses;
+    private final int onlineCount;
+    private final int failedCount;
+
+    FleetSnapshot(List<DeviceStatus> statuses) {
+        this.statuses = Collections.unmodifiableList(statuses);
+        int online = 0;
+        int failed = 0;
+        for (DeviceStatus status : statuses) {
+            if (!status.isSuccess()) {
+                failed++;
+            } else if (status.isOnline()) {
+                online++;
+            }
+        }
+        this.onlineCount = online;
+        this.failedCount = failed;
+    }
+
+    public List<DeviceStatus> getStatuses() {
+        return statuses;
+    }
+
+    public int getOnlineCount() {
+        return onlineCount;
+    }
+
+    public int getOfflineCount() {
+        return statuses.size() - onlineCount - failedCount;
+    }
+
+    /**
+     * 查询失败的设备数量，这些设备的在线状态未知
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "FleetSnapshot{" +
+                "total=" + statuses.size() +
+                ", online=" + onlineCount +
+                ", offline=" + getOfflineCount() +
+                ", failed=" + failedCount +
+                '}';
+    }
+}
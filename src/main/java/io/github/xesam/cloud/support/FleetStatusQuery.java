@@ -0,0 +1,157 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.CloudApi;
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.Device;
+import io.github.xesam.cloud.DeviceStatus;
+import io.github.xesam.cloud.simple.CloudExecutors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 批量查询设备状态，同一个 CloudApi（即同一个厂商账号）的查询共用一个并发上限。
+ * 请求通过 CloudApi 自己的 RequestClient 发出，与其他接口共用连接池；查询使用 Device 的副本，不修改调用方的对象。
+ * 等待中的查询放在队列里，不占用线程，正在执行的查询完成后再从队列取下一个
+ */
+public class FleetStatusQuery {
+    private final CloudApi cloudApi;
+    private final Queue<Supplier<Runnable>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int concurrency = 8;
+    private volatile Executor executor = CloudExecutors.getDefault();
+
+    public FleetStatusQuery(CloudApi cloudApi) {
+        this.cloudApi = cloudApi;
+    }
+
+    /**
+     * 同一账号同时进行中的 queryDevice 数量上限
+     */
+    public FleetStatusQuery setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+        this.drain();
+        return this;
+    }
+
+    public FleetStatusQuery setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * 阻塞直到全部设备查询完成
+     */
+    public FleetSnapshot queryAll(Collection<Device> devices) {
+        return this.query(devices, status -> {
+        }).join();
+    }
+
+    /**
+     * 每台设备查询完成时立即回调 listener，不等待最慢的设备；全部完成后返回的 future 得到完整快照。
+     * listener 在执行查询的线程上调用，应尽快返回
+     */
+    public CompletableFuture<FleetSnapshot> query(Collection<Device> devices, Consumer<DeviceStatus> listener) {
+        DeviceStatus[] statuses = new DeviceStatus[devices.size()];
+        CompletableFuture<FleetSnapshot> result = new CompletableFuture<>();
+        if (statuses.length == 0) {
+            result.complete(new FleetSnapshot(new ArrayList<>()));
+            return result;
+        }
+        AtomicInteger remaining = new AtomicInteger(statuses.length);
+        int index = 0;
+        for (Device device : devices) {
+            int position = index++;
+            this.pending.offer(() -> {
+                DeviceStatus status = this.queryStatus(device);
+                statuses[position] = status;
+                return () -> {
+                    try {
+                        listener.accept(status);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            result.complete(new FleetSnapshot(Arrays.asList(statuses)));
+                        }
+                    }
+                };
+            });
+        }
+        this.drain();
+        return result;
+    }
+
+    private DeviceStatus queryStatus(Device device) {
+        try {
+            CloudResponse<Device> response = this.cloudApi.queryDevice(device.copy());
+            if (response.isSuccess()) {
+                return DeviceStatus.of(response.getSuccessEntity());
+            }
+            return DeviceStatus.ofFail(device.getSn(), response.getFailMessage());
+        } catch (RuntimeException e) {
+            return DeviceStatus.ofFail(device.getSn(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= this.concurrency || this.pending.isEmpty()) {
+                return;
+            }
+            if (!this.inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Supplier<Runnable> task = this.pending.poll();
+            if (task == null) {
+                // 其他线程先取走了任务，归还名额后重新检查
+                this.inFlight.decrementAndGet();
+                continue;
+            }
+            try {
+                this.executor.execute(() -> this.runAndRelease(task));
+            } catch (RejectedExecutionException e) {
+                // executor 已关闭时在当前线程执行，由外层循环继续取下一个
+                Runnable completion;
+                try {
+                    completion = task.get();
+                } finally {
+                    this.inFlight.decrementAndGet();
+                }
+                completion.run();
+            }
+        }
+    }
+
+    /**
+     * 查询结束先归还名额再回调，保证 future 完成时 getInFlight() 已经不包含这次查询
+     */
+    private void runAndRelease(Supplier<Runnable> task) {
+        Runnable completion;
+        try {
+            completion = task.get();
+        } finally {
+            this.inFlight.decrementAndGet();
+        }
+        try {
+            completion.run();
+        } finally {
+            this.drain();
+        }
+    }
+}
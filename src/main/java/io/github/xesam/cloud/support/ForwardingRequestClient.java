@@ -0,0 +1,146 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 包装另一个 RequestClient，所有请求都经过 execute，子类在其中加入限流、熔断等控制。
+ * delegate 不支持流式解析时，先得到 String 再交给 ResponseHandler
+ */
+public abstract class ForwardingRequestClient implements StreamingRequestClient {
+    private final RequestClient<String> delegate;
+
+    protected ForwardingRequestClient(RequestClient<String> delegate) {
+        this.delegate = delegate;
+    }
+
+    public RequestClient<String> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 请求地址的主机名，按厂商主机分别控制时作为 key
+     */
+    protected static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? url : host;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    /**
+     * 执行一次请求，url 为完整的请求地址
+     */
+    protected abstract <R> CloudResponse<R> execute(String url, Supplier<CloudResponse<R>> call);
+
+    private static <R> CloudResponse<R> handle(CloudResponse<String> response, ResponseHandler<R> handler) {
+        if (!response.isSuccess()) {
+            return CloudResponse.ofFail(response);
+        }
+        try {
+            return CloudResponse.ofSuccess(handler.handle(new ByteArrayInputStream(response.getSuccessEntity().getBytes(StandardCharsets.UTF_8))));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getMessage());
+        }
+    }
+
+    private StreamingRequestClient streaming() {
+        return this.delegate instanceof StreamingRequestClient ? (StreamingRequestClient) this.delegate : null;
+    }
+
+    @Override
+    public CloudResponse<String> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+        return this.execute(url, () -> this.delegate.httpGet(url, params, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, String body, Map<String, String> headers) {
+        return this.execute(url, () -> this.delegate.httpPost(url, body, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return this.execute(url, () -> this.delegate.httpPost(url, formBody, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        return this.execute(url, () -> this.delegate.httpDelete(url, params, headers));
+    }
+
+    @Override
+    public CloudResponse<String> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return this.execute(url, () -> this.delegate.httpPatch(url, formBody, headers));
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpGet(url, params, headers, handler));
+        }
+        return handle(this.httpGet(url, params, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpPost(url, body, headers, handler));
+        }
+        return handle(this.httpPost(url, body, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpPost(url, formBody, headers, handler));
+        }
+        return handle(this.httpPost(url, formBody, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpPost(url, body, headers, handler));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            body.writeTo(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getMessage());
+        }
+        return handle(this.httpPost(url, new String(out.toByteArray(), StandardCharsets.UTF_8), headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpDelete(url, params, headers, handler));
+        }
+        return handle(this.httpDelete(url, params, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        StreamingRequestClient streaming = this.streaming();
+        if (streaming != null) {
+            return this.execute(url, () -> streaming.httpPatch(url, formBody, headers, handler));
+        }
+        return handle(this.httpPatch(url, formBody, headers), handler);
+    }
+}
@@ -0,0 +1,350 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.*;
+import io.github.xesam.cloud.simple.LatencyWindow;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 对只读接口对冲请求：第一次调用超过最近耗时的 percentile 分位仍未返回时，再发出一次相同的调用，先成功返回的结果生效，另一个被取消。
+ * 默认对冲 queryDevice、queryOrder 与 queryDeviceOrders，打印等写接口不能对冲。
+ * 对冲的请求数不超过总请求数的 maxHedgeRatio；取消只是取消 delegate 返回的 CompletableFuture，已经发出的 HTTP 请求是否中断取决于 delegate。
+ * 每次调用使用 Device、Order 的副本，生效的结果再写回调用方的对象，被取消的调用继续运行也不会修改调用方的对象。
+ * delegate 必须是真正的异步实现，比如 FeieCloud、XpyunCloud、SpyunCloud 的 async() 或者使用线程池的 ExecutorAsyncCloud；
+ * 在调用线程上同步完成的 delegate（比如 SimpleCloud 默认的 async()）返回时已经有结果，不会发出对冲请求。
+ * 被对冲请求抢先的调用按取消时已经等待的时间记录耗时，避免耗时分位数只统计快的调用而不断偏低
+ */
+public class HedgingAsyncCloudApi implements AsyncCloudApi {
+    private static final int WINDOW_SIZE = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final long CREDIT_PER_HEDGE = 1000;
+    private static final long MAX_CREDIT = 10 * CREDIT_PER_HEDGE;
+
+    private static final class SchedulerHolder {
+        private static final ScheduledExecutorService INSTANCE = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "cloud-printing-hedging");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    /**
+     * 对冲请求在定时器线程中发出，第一次调用先返回时用它取消对冲请求
+     */
+    private static final class HedgeAttempt<T> {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile CompletableFuture<CloudResponse<T>> future;
+
+        void set(CompletableFuture<CloudResponse<T>> future) {
+            this.future = future;
+            if (this.cancelled.get()) {
+                future.cancel(true);
+            }
+        }
+
+        void cancel() {
+            this.cancelled.set(true);
+            CompletableFuture<CloudResponse<T>> future = this.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private final AsyncCloudApi delegate;
+    private final Map<CloudMethod, LatencyWindow> hedged = new EnumMap<>(CloudMethod.class);
+    private final AtomicLong credit = new AtomicLong();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private volatile ScheduledExecutorService scheduler;
+    private volatile double percentile = 0.95;
+    private volatile long initialDelayNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private volatile long minDelayNanos = TimeUnit.MILLISECONDS.toNanos(20);
+    private volatile double maxHedgeRatio = 0.05;
+
+    public HedgingAsyncCloudApi(AsyncCloudApi delegate) {
+        this.delegate = delegate;
+        this.hedged.put(CloudMethod.QUERY_DEVICE, new LatencyWindow(WINDOW_SIZE, MIN_SAMPLES));
+        this.hedged.put(CloudMethod.QUERY_ORDER, new LatencyWindow(WINDOW_SIZE, MIN_SAMPLES));
+        this.hedged.put(CloudMethod.QUERY_DEVICE_ORDERS, new LatencyWindow(WINDOW_SIZE, MIN_SAMPLES));
+    }
+
+    /**
+     * 需要在开始调用之前设置，只有只读接口可以对冲
+     */
+    public HedgingAsyncCloudApi setHedged(CloudMethod method, boolean hedged) {
+        if (!method.isRead()) {
+            throw new IllegalArgumentException(method + " is not idempotent and can not be hedged");
+        }
+        if (hedged) {
+            this.hedged.putIfAbsent(method, new LatencyWindow(WINDOW_SIZE, MIN_SAMPLES));
+        } else {
+            this.hedged.remove(method);
+        }
+        return this;
+    }
+
+    public boolean isHedged(CloudMethod method) {
+        return this.hedged.containsKey(method);
+    }
+
+    /**
+     * 等待超过最近耗时的这个分位数之后发出对冲请求，默认 0.95
+     */
+    public HedgingAsyncCloudApi setPercentile(double percentile) {
+        if (!(percentile > 0 && percentile < 1)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * 耗时样本不足时使用的等待时间
+     */
+    public HedgingAsyncCloudApi setInitialDelay(long duration, TimeUnit unit) {
+        this.initialDelayNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 等待时间的下限，避免厂商很快时对冲过于激进
+     */
+    public HedgingAsyncCloudApi setMinDelay(long duration, TimeUnit unit) {
+        this.minDelayNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 对冲请求数占总请求数的最大比例，默认 0.05
+     */
+    public HedgingAsyncCloudApi setMaxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+        return this;
+    }
+
+    /**
+     * 用于触发对冲请求的定时器，默认使用进程内共享的单个守护线程
+     */
+    public HedgingAsyncCloudApi setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    private ScheduledExecutorService scheduler() {
+        ScheduledExecutorService scheduler = this.scheduler;
+        return scheduler == null ? SchedulerHolder.INSTANCE : scheduler;
+    }
+
+    /**
+     * 当前发出对冲请求前的等待时间，单位毫秒
+     */
+    public long getHedgeDelayMillis(CloudMethod method) {
+        LatencyWindow window = this.hedged.get(method);
+        return window == null ? -1 : TimeUnit.NANOSECONDS.toMillis(this.delayNanos(window));
+    }
+
+    /**
+     * 已经发出的对冲请求数
+     */
+    public long getHedgeCount() {
+        return this.hedges.sum();
+    }
+
+    /**
+     * 对冲请求先于第一次调用返回的次数
+     */
+    public long getHedgeWinCount() {
+        return this.hedgeWins.sum();
+    }
+
+    private long delayNanos(LatencyWindow window) {
+        long percentileNanos = window.percentileNanos(this.percentile);
+        return Math.max(this.minDelayNanos, percentileNanos < 0 ? this.initialDelayNanos : percentileNanos);
+    }
+
+    /**
+     * 每次调用积累 maxHedgeRatio 个额度，发出一次对冲消耗一个额度
+     */
+    private void earnCredit() {
+        long earned = (long) (this.maxHedgeRatio * CREDIT_PER_HEDGE);
+        if (earned <= 0) {
+            return;
+        }
+        long current;
+        do {
+            current = this.credit.get();
+            if (current >= MAX_CREDIT) {
+                return;
+            }
+        } while (!this.credit.compareAndSet(current, Math.min(MAX_CREDIT, current + earned)));
+    }
+
+    private boolean spendCredit() {
+        long current;
+        do {
+            current = this.credit.get();
+            if (current < CREDIT_PER_HEDGE) {
+                return false;
+            }
+        } while (!this.credit.compareAndSet(current, current - CREDIT_PER_HEDGE));
+        return true;
+    }
+
+    private <T> CompletableFuture<CloudResponse<T>> attempt(LatencyWindow window, Supplier<CompletableFuture<CloudResponse<T>>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<CloudResponse<T>> future = call.get();
+        future.whenComplete((response, throwable) -> {
+            if (response != null && (response.isSuccess() || response.getFailReason() == CloudResponse.FailReason.UNKNOWN)) {
+                window.record(System.nanoTime() - start);
+            }
+        });
+        return future;
+    }
+
+    private <T> CompletableFuture<CloudResponse<T>> call(CloudMethod method, Supplier<CompletableFuture<CloudResponse<T>>> call) {
+        LatencyWindow window = this.hedged.get(method);
+        if (window == null) {
+            return call.get();
+        }
+        this.earnCredit();
+        long primaryStart = System.nanoTime();
+        CompletableFuture<CloudResponse<T>> primary = this.attempt(window, call);
+        if (primary.isDone()) {
+            return primary;
+        }
+        CompletableFuture<CloudResponse<T>> result = new CompletableFuture<>();
+        HedgeAttempt<T> hedge = new HedgeAttempt<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicBoolean decided = new AtomicBoolean();
+        ScheduledFuture<?> timer = this.scheduler().schedule(() -> {
+            if (decided.get() || !this.spendCredit()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            this.hedges.increment();
+            CompletableFuture<CloudResponse<T>> second = this.attempt(window, call);
+            hedge.set(second);
+            second.whenComplete((response, throwable) -> this.complete(result, decided, response, throwable, outstanding, () -> {
+                this.hedgeWins.increment();
+                if (!primary.isDone()) {
+                    window.record(System.nanoTime() - primaryStart);
+                }
+                primary.cancel(true);
+            }));
+        }, this.delayNanos(window), TimeUnit.NANOSECONDS);
+        primary.whenComplete((response, throwable) -> this.complete(result, decided, response, throwable, outstanding, () -> {
+            timer.cancel(false);
+            hedge.cancel();
+        }));
+        return result;
+    }
+
+    /**
+     * 成功的结果立即生效；失败时如果另一个调用还没有返回则继续等待，都失败时使用最后一个失败结果。
+     * 生效之前先执行 cancelOther 取消另一个调用，被取消的调用回到这里时 decided 已经设置，不会覆盖结果
+     */
+    private <T> void complete(CompletableFuture<CloudResponse<T>> result, AtomicBoolean decided, CloudResponse<T> response, Throwable throwable,
+                                 AtomicInteger outstanding, Runnable cancelOther) {
+        int remaining = outstanding.decrementAndGet();
+        if (remaining > 0 && (response == null || !response.isSuccess())) {
+            return;
+        }
+        if (!decided.compareAndSet(false, true)) {
+            return;
+        }
+        if (response == null) {
+            response = CloudResponse.ofFail(throwable == null ? "no response" : String.valueOf(throwable.getMessage()));
+        }
+        cancelOther.run();
+        result.complete(response);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> addDevice(Device device) {
+        return this.delegate.addDevice(device);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device) {
+        return this.delegate.deleteDevice(device);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Device>> queryDevice(Device device) {
+        if (!this.isHedged(CloudMethod.QUERY_DEVICE)) {
+            return this.delegate.queryDevice(device);
+        }
+        return this.call(CloudMethod.QUERY_DEVICE, () -> this.delegate.queryDevice(device.copy())).thenApply(response -> {
+            if (!response.isSuccess()) {
+                return response;
+            }
+            CloudStates.copy(response.getSuccessEntity(), device);
+            return CloudResponse.ofSuccess(device);
+        });
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device) {
+        return this.delegate.updateDevice(device);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order) {
+        return this.delegate.printMsgOrder(device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order) {
+        return this.delegate.printLabelOrder(device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> queryOrder(Order order) {
+        if (!this.isHedged(CloudMethod.QUERY_ORDER)) {
+            return this.delegate.queryOrder(order);
+        }
+        return this.call(CloudMethod.QUERY_ORDER, () -> this.delegate.queryOrder(order.copy())).thenApply(response -> {
+            if (!response.isSuccess()) {
+                return response;
+            }
+            CloudStates.copy(response.getSuccessEntity(), order);
+            return CloudResponse.ofSuccess(order);
+        });
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return this.call(CloudMethod.QUERY_DEVICE_ORDERS, () -> this.delegate.queryDeviceOrders(device.copy(), queryOption));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device) {
+        return this.delegate.clearDeviceOrders(device);
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingAsyncCloudApi{" +
+                "hedges=" + getHedgeCount() +
+                ", hedgeWins=" + getHedgeWinCount() +
+                '}';
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.xesam.cloud.support;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 订单 id 到打印状态的开放寻址表，线性探测。
+ * 只保存 id 的 64 位指纹、过期时间和状态，每条记录约 17 字节，不保存 id 字符串本身；
+ * 指纹冲突的概率在百万级订单下可以忽略。
+ * 表满时先清除过期记录，仍然超过上限时按过期时间从早到晚淘汰，保证占用的内存有上限
+ */
+final class OrderStatusTable {
+    static final byte ABSENT = 0;
+    static final byte WAITING = 1;
+    static final byte PRINTED = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private int maximumSize;
+    private long[] fingerprints;
+    private long[] expiresAt;
+    private byte[] states;
+    private int size;
+
+    OrderStatusTable(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.fingerprints = new long[capacity];
+        this.expiresAt = new long[capacity];
+        this.states = new byte[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * FNV-1a 后再做一次混合，0 留给空槽
+     */
+    static long fingerprint(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private int indexOf(long fingerprint) {
+        int mask = this.fingerprints.length - 1;
+        int index = (int) fingerprint & mask;
+        while (this.fingerprints[index] != 0 && this.fingerprints[index] != fingerprint) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    void setMaximumSize(int maximumSize) {
+        this.lock.lock();
+        try {
+            this.maximumSize = maximumSize;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 没有记录或已过期时返回 ABSENT
+     */
+    byte get(String id, long now) {
+        this.lock.lock();
+        try {
+            int index = this.indexOf(fingerprint(id));
+            if (this.fingerprints[index] == 0 || this.expiresAt[index] - now <= 0) {
+                return ABSENT;
+            }
+            return this.states[index];
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    void put(String id, byte state, long expiresAt, long now) {
+        this.lock.lock();
+        try {
+            long fingerprint = fingerprint(id);
+            int index = this.indexOf(fingerprint);
+            if (this.fingerprints[index] == 0) {
+                if (this.size >= this.maximumSize || this.size + 1 > this.fingerprints.length / 2) {
+                    this.makeRoom(now);
+                    index = this.indexOf(fingerprint);
+                }
+                this.fingerprints[index] = fingerprint;
+                this.size++;
+            }
+            this.expiresAt[index] = expiresAt;
+            this.states[index] = state;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    void clear() {
+        this.lock.lock();
+        try {
+            this.allocate(INITIAL_CAPACITY);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 未达到上限时扩容；达到上限时清除过期记录，剩余仍超过上限的 3/4 时逐步提前淘汰时间点，淘汰最早过期的记录
+     */
+    private void makeRoom(long now) {
+        if (this.size < this.maximumSize) {
+            this.rehash(this.fingerprints.length * 2, now);
+            return;
+        }
+        long cutoff = now;
+        long latest = now;
+        for (int i = 0; i < this.fingerprints.length; i++) {
+            if (this.fingerprints[i] != 0 && this.expiresAt[i] - latest > 0) {
+                latest = this.expiresAt[i];
+            }
+        }
+        int limit = this.maximumSize / 4 * 3;
+        while (true) {
+            this.rehash(this.fingerprints.length, cutoff);
+            if (this.size <= limit || cutoff == latest) {
+                break;
+            }
+            long next = cutoff + (latest - cutoff) / 2;
+            cutoff = next == cutoff ? latest : next;
+        }
+    }
+
+    private void rehash(int capacity, long cutoff) {
+        long[] fingerprints = this.fingerprints;
+        long[] expiresAt = this.expiresAt;
+        byte[] states = this.states;
+        this.allocate(capacity);
+        for (int i = 0; i < fingerprints.length; i++) {
+            if (fingerprints[i] != 0 && expiresAt[i] - cutoff > 0) {
+                int index = this.indexOf(fingerprints[i]);
+                this.fingerprints[index] = fingerprints[i];
+                this.expiresAt[index] = expiresAt[i];
+                this.states[index] = states[i];
+                this.size++;
+            }
+        }
+    }
+}
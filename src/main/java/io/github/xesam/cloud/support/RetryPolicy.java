@@ -0,0 +1,125 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.CloudResponse;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个接口的重试策略：最多尝试次数、退避时间与总时间预算，以及哪些失败原因可以重试。
+ * 退避使用 decorrelated jitter，每次等待在 baseDelay 与上次等待的 3 倍之间随机取值，不超过 maxDelay，避免多个调用方同步重试
+ */
+public final class RetryPolicy {
+    private int maxAttempts = 3;
+    private long baseDelayMillis = 100;
+    private long maxDelayMillis = TimeUnit.SECONDS.toMillis(2);
+    private long budgetMillis = TimeUnit.SECONDS.toMillis(5);
+    private final Set<CloudResponse.FailReason> retryOn = EnumSet.noneOf(CloudResponse.FailReason.class);
+
+    public RetryPolicy() {
+    }
+
+    /**
+     * 只读接口：请求未发出、结果不确定、限流、厂商 5xx 都可以重试
+     */
+    public static RetryPolicy forReads() {
+        return new RetryPolicy().retryOn(CloudResponse.FailReason.NOT_SENT, CloudResponse.FailReason.AMBIGUOUS,
+                CloudResponse.FailReason.THROTTLED, CloudResponse.FailReason.SERVER_ERROR, CloudResponse.FailReason.LOCALLY_REJECTED);
+    }
+
+    /**
+     * 写接口：只在确认厂商没有处理时重试，超时等结果不确定的失败不会重发，避免重复打印
+     */
+    public static RetryPolicy forWrites() {
+        return new RetryPolicy().retryOn(CloudResponse.FailReason.NOT_SENT, CloudResponse.FailReason.THROTTLED,
+                CloudResponse.FailReason.LOCALLY_REJECTED);
+    }
+
+    /**
+     * 不重试
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy().setMaxAttempts(1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 包括第一次调用在内的最多调用次数
+     */
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public RetryPolicy setBaseDelay(long duration, TimeUnit unit) {
+        this.baseDelayMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public RetryPolicy setMaxDelay(long duration, TimeUnit unit) {
+        this.maxDelayMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * 从第一次调用开始的总时间预算，下一次等待会超出预算时不再重试
+     */
+    public RetryPolicy setBudget(long duration, TimeUnit unit) {
+        this.budgetMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public Set<CloudResponse.FailReason> getRetryOn() {
+        return Collections.unmodifiableSet(retryOn);
+    }
+
+    public RetryPolicy retryOn(CloudResponse.FailReason... reasons) {
+        Collections.addAll(this.retryOn, reasons);
+        return this;
+    }
+
+    boolean isRetryable(CloudResponse<?> response) {
+        return !response.isSuccess() && this.retryOn.contains(response.getFailReason());
+    }
+
+    /**
+     * 根据上一次等待时间计算下一次等待时间
+     */
+    long nextDelayMillis(long previousDelayMillis) {
+        long upper = Math.max(this.baseDelayMillis, previousDelayMillis * 3);
+        long delay = upper > this.baseDelayMillis ? ThreadLocalRandom.current().nextLong(this.baseDelayMillis, upper + 1) : this.baseDelayMillis;
+        return Math.min(this.maxDelayMillis, delay);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", baseDelayMillis=" + baseDelayMillis +
+                ", maxDelayMillis=" + maxDelayMillis +
+                ", budgetMillis=" + budgetMillis +
+                ", retryOn=" + retryOn +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.xesam.cloud.support;
+
+import io.github.xesam.cloud.*;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按接口配置重试策略。
+ * 默认只读接口使用 RetryPolicy.forReads()，其他接口使用 RetryPolicy.forWrites()，打印接口在超时等结果不确定时不会重发。
+ * 是否重试只看 CloudResponse.getFailReason()，厂商返回的业务错误不会重试；批量接口直接交给 delegate，不重试。
+ * 当前线程绑定了 Deadline 时，剩余时间不够退避等待就不再重试
+ */
+public class RetryingCloudApi implements CloudApi {
+    private final CloudApi delegate;
+    private final Map<CloudMethod, RetryPolicy> policies = new EnumMap<>(CloudMethod.class);
+    private final LongAdder retries = new LongAdder();
+
+    public RetryingCloudApi(CloudApi delegate) {
+        this.delegate = delegate;
+        for (CloudMethod method : CloudMethod.values()) {
+            this.policies.put(method, method.isRead() ? RetryPolicy.forReads() : RetryPolicy.forWrites());
+        }
+    }
+
+    /**
+     * 需要在开始调用之前设置
+     */
+    public RetryingCloudApi setPolicy(CloudMethod method, RetryPolicy policy) {
+        this.policies.put(method, policy);
+        return this;
+    }
+
+    public RetryPolicy getPolicy(CloudMethod method) {
+        return this.policies.get(method);
+    }
+
+    /**
+     * 已经发起的重试次数，不包括第一次调用
+     */
+    public long getRetryCount() {
+        return this.retries.sum();
+    }
+
+    private <T> CloudResponse<T> call(CloudMethod method, Supplier<CloudResponse<T>> call) {
+        RetryPolicy policy = this.policies.get(method);
+        long start = System.nanoTime();
+        long delayMillis = 0;
+        CloudResponse<T> response = call.get();
+        for (int attempt = 1; attempt < policy.getMaxAttempts() && policy.isRetryable(response); attempt++) {
+            delayMillis = policy.nextDelayMillis(delayMillis);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMillis + delayMillis > policy.getBudgetMillis()) {
+                break;
+            }
+            Deadline deadline = Deadline.current();
+            if (deadline != null && deadline.remaining(TimeUnit.MILLISECONDS) <= delayMillis) {
+                break;
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            this.retries.increment();
+            response = call.get();
+        }
+        return response;
+    }
+
+    @Override
+    public CloudResponse<Boolean> addDevice(Device device) {
+        return this.call(CloudMethod.ADD_DEVICE, () -> this.delegate.addDevice(device));
+    }
+
+    @Override
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        return this.call(CloudMethod.DELETE_DEVICE, () -> this.delegate.deleteDevice(device));
+    }
+
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.delegate.addDevices(devices);
+    }
+
+    @Override
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        return this.delegate.deleteDevices(devices);
+    }
+
+    @Override
+    public CloudResponse<Device> queryDevice(Device device) {
+        return this.call(CloudMethod.QUERY_DEVICE, () -> this.delegate.queryDevice(device));
+    }
+
+    @Override
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        return this.call(CloudMethod.UPDATE_DEVICE, () -> this.delegate.updateDevice(device));
+    }
+
+    @Override
+    public CloudResponse<Order> printMsgOrder(Device device, Order order) {
+        return this.call(CloudMethod.PRINT_MSG_ORDER, () -> this.delegate.printMsgOrder(device, order));
+    }
+
+    @Override
+    public CloudResponse<Order> printLabelOrder(Device device, Order order) {
+        return this.call(CloudMethod.PRINT_LABEL_ORDER, () -> this.delegate.printLabelOrder(device, order));
+    }
+
+    @Override
+    public CloudResponse<Order> queryOrder(Order order) {
+        return this.call(CloudMethod.QUERY_ORDER, () -> this.delegate.queryOrder(order));
+    }
+
+    @Override
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return this.call(CloudMethod.QUERY_DEVICE_ORDERS, () -> this.delegate.queryDeviceOrders(device, queryOption));
+    }
+
+    @Override
+    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+        return this.call(CloudMethod.CLEAR_DEVICE_ORDERS, () -> this.delegate.clearDeviceOrders(device));
+    }
+
+    @Override
+    public String toString() {
+        return "RetryingCloudApi{" +
+                "retries=" + getRetryCount() +
+                '}';
+    }
+}
@@ -1,6 +1,10 @@
 package io.github.xesam.cloud.xpyun;
 
-class VendorResponse<T> {
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.simple.VendorEnvelope;
+import io.github.xesam.cloud.simple.VendorThrottling;
+
+class VendorResponse<T> implements VendorEnvelope {
     private static final int OK = 0;
     public String msg;
     public int code = -1;
@@ -10,4 +14,13 @@ class VendorResponse<T> {
     public boolean isOK() {
         return code == OK;
     }
+
+    @Override
+    public boolean isThrottled() {
+        return !isOK() && VendorThrottling.isThrottled(msg);
+    }
+
+    <R> CloudResponse<R> toFail() {
+        return CloudResponse.ofFail(msg, isThrottled() ? CloudResponse.FailReason.THROTTLED : CloudResponse.FailReason.UNKNOWN);
+    }
 }
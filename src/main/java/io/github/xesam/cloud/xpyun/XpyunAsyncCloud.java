@@ -0,0 +1,73 @@
+package io.github.xesam.cloud.xpyun;
+
+import io.github.xesam.cloud.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * XpyunCloud 的异步视图，签名和解析逻辑与 XpyunCloud 保持一致
+ */
+class XpyunAsyncCloud implements AsyncCloudApi {
+    private final XpyunCloud cloud;
+
+    XpyunAsyncCloud(XpyunCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> addDevice(Device device) {
+        return cloud.requestAsync("addPrinters", cloud.createAddDeviceData(device), DevicesResponse.class)
+                .thenApply(cloud::createDevicesResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> deleteDevice(Device device) {
+        return cloud.requestAsync("delPrinters", cloud.createDeleteDeviceData(device), DevicesResponse.class)
+                .thenApply(cloud::createDevicesResponse);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Device>> queryDevice(Device device) {
+        return cloud.requestAsync("queryPrinterStatus", cloud.createQueryDeviceData(device), IntResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceResponse(response, device));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> updateDevice(Device device) {
+        return cloud.requestAsync("updPrinter", cloud.createUpdateDeviceData(device), BoolResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+
+    private CompletableFuture<CloudResponse<Order>> printOrder(String apiName, Device device, Order order) {
+        return cloud.requestAsync(apiName, cloud.createPrintOrderData(device, order), StringResponse.class)
+                .thenApply(response -> cloud.createPrintOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printMsgOrder(Device device, Order order) {
+        return this.printOrder("print", device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> printLabelOrder(Device device, Order order) {
+        return this.printOrder("printLabel", device, order);
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Order>> queryOrder(Order order) {
+        return cloud.requestAsync("queryOrderState", cloud.createQueryOrderData(order), BoolResponse.class)
+                .thenApply(response -> cloud.createQueryOrderResponse(response, order));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<DeviceOrderStat>> queryDeviceOrders(Device device, QueryOption queryOption) {
+        return cloud.requestAsync("queryOrderStatis", cloud.createQueryDeviceOrdersData(device, queryOption), DevicesOrderStatResponse.class)
+                .thenApply(response -> cloud.createQueryDeviceOrdersResponse(response, device, queryOption));
+    }
+
+    @Override
+    public CompletableFuture<CloudResponse<Boolean>> clearDeviceOrders(Device device) {
+        return cloud.requestAsync("delPrinterQueue", cloud.createClearDeviceOrdersData(device), BoolResponse.class)
+                .thenApply(cloud::createBoolResponse);
+    }
+}
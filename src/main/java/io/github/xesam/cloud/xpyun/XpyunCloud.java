@@ -1,16 +1,30 @@
 package io.github.xesam.cloud.xpyun;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.xesam.cloud.*;
+import io.github.xesam.cloud.simple.JacksonCodec;
 import io.github.xesam.cloud.simple.SimpleCloud;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class XpyunCloud extends SimpleCloud implements CloudApi {
 
+    private static final Map<String, String> REQUEST_HEADERS = Collections.singletonMap("Content-Type", "application/json;charset=UTF-8");
     private static final int DONT_USE_BACK_URL = -1;
+    /**
+     * addPrinters 与 delPrinters 单次最多 50 台
+     */
+    static final int MAX_DEVICES_PER_REQUEST = 50;
+
+    static {
+        JacksonCodec.getDefault().prepare(BoolResponse.class, IntResponse.class, StringResponse.class, DevicesResponse.class, DevicesOrderStatResponse.class);
+        XpyunResponseDecoders.registerTo(StreamingResponseParser.getDefault());
+    }
+
     private int backurlFlag;
+    private final SignatureCache signatureCache;
+    private final XpyunAsyncCloud asyncCloud = new XpyunAsyncCloud(this);
 
     public XpyunCloud(CloudAuth cloudAuth) {
         this(cloudAuth, DONT_USE_BACK_URL);
@@ -18,6 +32,8 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
 
     public XpyunCloud(CloudAuth cloudAuth, int backurlFlag) {
         super(cloudAuth);
+        this.signatureCache = SignatureCache.SHA1(cloudAuth);
+        this.setRequestEncoder(new XpyunRequestEncoder(JacksonCodec.getDefault().getObjectMapper().getFactory()));
         this.setBackUrl(backurlFlag).setUrlRewriter(url -> "https://open.xpyun.net/api/openapi/xprinter/" + url);
     }
 
@@ -26,6 +42,10 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
         return this;
     }
 
+    @Override
+    public AsyncCloudApi async() {
+        return this.asyncCloud;
+    }
 
     private String getValue(String value) {
         if (value == null) {
@@ -34,50 +54,67 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
         return value;
     }
 
-    private Map<String, String> createRequestHeaders() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/json;charset=UTF-8");
-        return headers;
+    private static boolean isBlank(Object value) {
+        return value == null || (value instanceof String && ((String) value).trim().isEmpty());
     }
 
-    private CloudResponse<String> request(String apiName, Map<String, Object> data) {
-        data.entrySet().removeIf(ele -> Objects.isNull(ele.getValue()) || String.valueOf(ele.getValue()).trim().isEmpty());
-        String epochSecond = this.cloudClock.getEpochSecond() + "";
+    private Map<String, Object> fullfill(Map<String, Object> data) {
+        data.values().removeIf(XpyunCloud::isBlank);
+        long epochSecond = this.cloudClock.getEpochSecond();
         data.put("user", this.cloudAuth.getAppId());
-        data.put("timestamp", epochSecond);
-        data.put("sign", MessageDigests.SHA1(this.cloudAuth.getAppId() + this.cloudAuth.getSecret() + epochSecond));
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonData = "";
-        try {
-            jsonData = objectMapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+        data.put("timestamp", String.valueOf(epochSecond));
+        data.put("sign", this.signatureCache.sign(epochSecond));
+        return data;
+    }
+
+    /**
+     * 请求体由 RequestClient 提供的缓冲直接写出，打印内容不会先生成一份完整的 JSON 字符串
+     */
+    private <R extends VendorResponse<?>> CloudResponse<R> request(String apiName, Map<String, Object> data, Class<R> klass) {
+        if (!this.acquirePermit(apiName)) {
+            return ofRateLimited(apiName);
+        }
+        Map<String, Object> reqData = this.fullfill(data);
+        CloudResponse<R> response = this.withTimeout(apiName, () -> this.httpPost(this.getUrl(apiName), out -> this.requestEncoder.encode(reqData, out), REQUEST_HEADERS, klass));
+        this.feedback(apiName, response);
+        return response;
+    }
+
+    <R extends VendorResponse<?>> CompletableFuture<CloudResponse<R>> requestAsync(String apiName, Map<String, Object> data, Class<R> klass) {
+        if (!this.tryAcquirePermit(apiName)) {
+            return CompletableFuture.completedFuture(ofRateLimited(apiName));
         }
-        return this.requestClient.httpPost(this.urlRewriter.getUrl(apiName), jsonData, this.createRequestHeaders());
+        String body = this.requestEncoder.encode(this.fullfill(data));
+        return this.withTimeoutAsync(apiName, () -> this.getAsyncRequestClient().httpPost(this.getUrl(apiName), body, REQUEST_HEADERS))
+                .thenApply(response -> {
+                    CloudResponse<R> parsed = this.parseResponse(response, klass);
+                    this.feedback(apiName, parsed);
+                    return parsed;
+                });
     }
 
     private boolean checkVendorResponse(VendorResponse<?> vendorResponse) {
         return vendorResponse != null && vendorResponse.isOK();
     }
 
-    private CloudResponse<Boolean> createBoolResponse(CloudResponse<String> requestResponse) {
+    CloudResponse<Boolean> createBoolResponse(CloudResponse<BoolResponse> requestResponse) {
         if (!requestResponse.isSuccess()) {
-            return CloudResponse.ofFail(requestResponse.getFailMessage());
+            return CloudResponse.ofFail(requestResponse);
         }
-        BoolResponse vendorResponse = responseParser.parse(requestResponse.getSuccessEntity(), BoolResponse.class);
+        BoolResponse vendorResponse = requestResponse.getSuccessEntity();
         if (this.checkVendorResponse(vendorResponse)) {
             return CloudResponse.ofSuccess(true);
         }
-        return CloudResponse.ofFail(vendorResponse.msg);
+        return vendorResponse.toFail();
     }
 
-    private CloudResponse<Boolean> createDevicesResponse(CloudResponse<String> requestResponse) {
+    CloudResponse<Boolean> createDevicesResponse(CloudResponse<DevicesResponse> requestResponse) {
         if (!requestResponse.isSuccess()) {
-            return CloudResponse.ofFail(requestResponse.getFailMessage());
+            return CloudResponse.ofFail(requestResponse);
         }
-        DevicesResponse vendorResponse = responseParser.parse(requestResponse.getSuccessEntity(), DevicesResponse.class);
+        DevicesResponse vendorResponse = requestResponse.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.data.success.size() > 0) {
             return CloudResponse.ofSuccess(true);
@@ -86,41 +123,146 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
         }
     }
 
-    @Override
-    public CloudResponse<Boolean> addDevice(Device device) {
-        Map<String, Object> data = new HashMap<>();
+    /**
+     * entry 以 sn 开头，并且 sn 之后不是字母或数字，避免 0123 匹配到 01234 的结果
+     */
+    private static boolean isEntryOf(String entry, String sn) {
+        if (entry == null || !entry.startsWith(sn)) {
+            return false;
+        }
+        if (entry.length() == sn.length()) {
+            return true;
+        }
+        char next = entry.charAt(sn.length());
+        return !(next >= '0' && next <= '9') && !(next >= 'a' && next <= 'z') && !(next >= 'A' && next <= 'Z');
+    }
+
+    private static String findFailMessage(DevicesResponse.Result result, String sn) {
+        if (result.failMsg != null) {
+            for (String failMsg : result.failMsg) {
+                if (isEntryOf(failMsg, sn)) {
+                    return failMsg;
+                }
+            }
+        }
+        int index = result.fail == null ? -1 : result.fail.indexOf(sn);
+        if (index >= 0 && result.failMsg != null && index < result.failMsg.size()) {
+            return result.failMsg.get(index);
+        }
+        return "no result for " + sn;
+    }
+
+    /**
+     * success 与 fail 中是设备编号，failMsg 中是对应的失败原因
+     */
+    List<CloudResponse<Device>> createDevicesResponses(CloudResponse<DevicesResponse> requestResponse, List<Device> devices) {
+        if (!requestResponse.isSuccess()) {
+            return failAll(devices, requestResponse.getFailMessage());
+        }
+        DevicesResponse vendorResponse = requestResponse.getSuccessEntity();
+        if (!this.checkVendorResponse(vendorResponse)) {
+            return failAll(devices, vendorResponse == null ? "invalid response" : vendorResponse.msg);
+        }
+        if (vendorResponse.data == null) {
+            return failAll(devices, "empty response data");
+        }
+        List<CloudResponse<Device>> responses = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            String sn = getValue(device.getSn());
+            if (vendorResponse.data.success != null && vendorResponse.data.success.contains(sn)) {
+                responses.add(CloudResponse.ofSuccess(device));
+            } else {
+                responses.add(CloudResponse.ofFail(findFailMessage(vendorResponse.data, sn)));
+            }
+        }
+        return responses;
+    }
+
+    private Map<String, String> createDeviceItem(Device device) {
         Map<String, String> deviceObj = new HashMap<>();
         deviceObj.put("sn", device.getSn());
         deviceObj.put("name", device.getName());
         deviceObj.entrySet().removeIf(ele -> Objects.isNull(ele.getValue()) || ele.getValue().trim().isEmpty());
+        return deviceObj;
+    }
+
+    Map<String, Object> createAddDevicesData(List<Device> devices) {
+        Map<String, Object> data = new HashMap<>();
+        List<Map<String, String>> items = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            items.add(this.createDeviceItem(device));
+        }
+        data.put("items", items);
+        return data;
+    }
+
+    @Override
+    public List<CloudResponse<Device>> addDevices(List<Device> devices) {
+        return this.requestInChunks(devices, MAX_DEVICES_PER_REQUEST, chunk -> {
+            CloudResponse<DevicesResponse> response = this.request("addPrinters", this.createAddDevicesData(chunk), DevicesResponse.class);
+            return this.createDevicesResponses(response, chunk);
+        });
+    }
+
+    Map<String, Object> createDeleteDevicesData(List<Device> devices) {
+        Map<String, Object> data = new HashMap<>();
+        List<String> snlist = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            snlist.add(getValue(device.getSn()));
+        }
+        data.put("snlist", snlist);
+        return data;
+    }
+
+    @Override
+    public List<CloudResponse<Device>> deleteDevices(List<Device> devices) {
+        return this.requestInChunks(devices, MAX_DEVICES_PER_REQUEST, chunk -> {
+            CloudResponse<DevicesResponse> response = this.request("delPrinters", this.createDeleteDevicesData(chunk), DevicesResponse.class);
+            return this.createDevicesResponses(response, chunk);
+        });
+    }
+
+    Map<String, Object> createAddDeviceData(Device device) {
+        Map<String, Object> data = new HashMap<>();
         List<Map<String, String>> items = new ArrayList<>();
-        items.add(deviceObj);
+        items.add(this.createDeviceItem(device));
         data.put("items", items);
-        CloudResponse<String> response = this.request("addPrinters", data);
-        return this.createDevicesResponse(response);
+        return data;
     }
 
     @Override
-    public CloudResponse<Boolean> deleteDevice(Device device) {
+    public CloudResponse<Boolean> addDevice(Device device) {
+        CloudResponse<DevicesResponse> response = this.request("addPrinters", this.createAddDeviceData(device), DevicesResponse.class);
+        return this.createDevicesResponse(response);
+    }
+
+    Map<String, Object> createDeleteDeviceData(Device device) {
         Map<String, Object> data = new HashMap<>();
         List<String> snlist = new ArrayList<>();
         snlist.add(getValue(device.getSn()));
         data.put("snlist", snlist);
-        CloudResponse<String> response = this.request("delPrinters", data);
-        return this.createDevicesResponse(response);
+        return data;
     }
 
     @Override
-    public CloudResponse<Device> queryDevice(Device device) {
+    public CloudResponse<Boolean> deleteDevice(Device device) {
+        CloudResponse<DevicesResponse> response = this.request("delPrinters", this.createDeleteDeviceData(device), DevicesResponse.class);
+        return this.createDevicesResponse(response);
+    }
+
+    Map<String, Object> createQueryDeviceData(Device device) {
         Map<String, Object> data = new HashMap<>();
         data.put("sn", getValue(device.getSn()));
-        CloudResponse<String> response = this.request("queryPrinterStatus", data);
+        return data;
+    }
+
+    CloudResponse<Device> createQueryDeviceResponse(CloudResponse<IntResponse> response, Device device) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        IntResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), IntResponse.class);
+        IntResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.data == 1) {
             device.markOnline().setStatus(Device.Status.NORMAL);
@@ -135,16 +277,26 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<Boolean> updateDevice(Device device) {
+    public CloudResponse<Device> queryDevice(Device device) {
+        CloudResponse<IntResponse> response = this.request("queryPrinterStatus", this.createQueryDeviceData(device), IntResponse.class);
+        return this.createQueryDeviceResponse(response, device);
+    }
+
+    Map<String, Object> createUpdateDeviceData(Device device) {
         Map<String, Object> data = new HashMap<>();
         data.put("sn", getValue(device.getSn()));
         data.put("name", getValue(device.getName()));
         data.put("cardno", getValue(device.getCardno()));
-        CloudResponse<String> response = this.request("updPrinter", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> updateDevice(Device device) {
+        CloudResponse<BoolResponse> response = this.request("updPrinter", this.createUpdateDeviceData(device), BoolResponse.class);
         return this.createBoolResponse(response);
     }
 
-    private CloudResponse<Order> printOrder(String apiName, Device device, Order order) {
+    Map<String, Object> createPrintOrderData(Device device, Order order) {
         Map<String, Object> data = new HashMap<>();
         data.put("sn", device.getSn());
         data.put("content", order.getContent());
@@ -157,18 +309,26 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
         if (backurlFlag != DONT_USE_BACK_URL) {
             data.put("backurlFlag", backurlFlag);
         }
-        CloudResponse<String> response = this.request(apiName, data);
+        return data;
+    }
+
+    CloudResponse<Order> createPrintOrderResponse(CloudResponse<StringResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        StringResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), StringResponse.class);
+        StringResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         order.setId(vendorResponse.data);
         return CloudResponse.ofSuccess(order);
     }
 
+    private CloudResponse<Order> printOrder(String apiName, Device device, Order order) {
+        CloudResponse<StringResponse> response = this.request(apiName, this.createPrintOrderData(device, order), StringResponse.class);
+        return this.createPrintOrderResponse(response, order);
+    }
+
     @Override
     public CloudResponse<Order> printMsgOrder(Device device, Order order) {
         return this.printOrder("print", device, order);
@@ -179,17 +339,19 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
         return this.printOrder("printLabel", device, order);
     }
 
-    @Override
-    public CloudResponse<Order> queryOrder(Order order) {
+    Map<String, Object> createQueryOrderData(Order order) {
         Map<String, Object> data = new HashMap<>();
         data.put("orderId", order.getId());
-        CloudResponse<String> response = this.request("queryOrderState", data);
+        return data;
+    }
+
+    CloudResponse<Order> createQueryOrderResponse(CloudResponse<BoolResponse> response, Order order) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        BoolResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), BoolResponse.class);
+        BoolResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         if (vendorResponse.data) {
             order.markPrinted();
@@ -200,26 +362,44 @@ public class XpyunCloud extends SimpleCloud implements CloudApi {
     }
 
     @Override
-    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+    public CloudResponse<Order> queryOrder(Order order) {
+        CloudResponse<BoolResponse> response = this.request("queryOrderState", this.createQueryOrderData(order), BoolResponse.class);
+        return this.createQueryOrderResponse(response, order);
+    }
+
+    Map<String, Object> createQueryDeviceOrdersData(Device device, QueryOption queryOption) {
         Map<String, Object> data = new HashMap<>();
         data.put("sn", device.getSn());
         data.put("date", queryOption.getDate());
-        CloudResponse<String> response = this.request("queryOrderStatis", data);
+        return data;
+    }
+
+    CloudResponse<DeviceOrderStat> createQueryDeviceOrdersResponse(CloudResponse<DevicesOrderStatResponse> response, Device device, QueryOption queryOption) {
         if (!response.isSuccess()) {
-            return CloudResponse.ofFail(response.getFailMessage());
+            return CloudResponse.ofFail(response);
         }
-        DevicesOrderStatResponse vendorResponse = responseParser.parse(response.getSuccessEntity(), DevicesOrderStatResponse.class);
+        DevicesOrderStatResponse vendorResponse = response.getSuccessEntity();
         if (!this.checkVendorResponse(vendorResponse)) {
-            return CloudResponse.ofFail(vendorResponse.msg);
+            return vendorResponse.toFail();
         }
         return CloudResponse.ofSuccess(new DeviceOrderStat(device.getSn(), queryOption.getDate(), vendorResponse.data.printed, vendorResponse.data.waiting));
     }
 
     @Override
-    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+    public CloudResponse<DeviceOrderStat> queryDeviceOrders(Device device, QueryOption queryOption) {
+        CloudResponse<DevicesOrderStatResponse> response = this.request("queryOrderStatis", this.createQueryDeviceOrdersData(device, queryOption), DevicesOrderStatResponse.class);
+        return this.createQueryDeviceOrdersResponse(response, device, queryOption);
+    }
+
+    Map<String, Object> createClearDeviceOrdersData(Device device) {
         Map<String, Object> data = new HashMap<>();
         data.put("sn", device.getSn());
-        CloudResponse<String> response = this.request("delPrinterQueue", data);
+        return data;
+    }
+
+    @Override
+    public CloudResponse<Boolean> clearDeviceOrders(Device device) {
+        CloudResponse<BoolResponse> response = this.request("delPrinterQueue", this.createClearDeviceOrdersData(device), BoolResponse.class);
         return this.createBoolResponse(response);
     }
 }
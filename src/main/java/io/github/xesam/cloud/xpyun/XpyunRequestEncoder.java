@@ -0,0 +1,70 @@
+package io.github.xesam.cloud.xpyun;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.github.xesam.cloud.RequestEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 芯烨请求体编码器，按参数的实际类型直接调用 JsonGenerator 写出，不经过 databind 的序列化器查找。
+ * 请求参数只有字符串、数字、字符串列表与 items 对象列表几种形态，其他类型交给 JsonGenerator 自己的 codec
+ */
+class XpyunRequestEncoder implements RequestEncoder {
+    private final JsonFactory jsonFactory;
+
+    XpyunRequestEncoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public String encode(Map<String, Object> data) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = this.jsonFactory.createGenerator(writer)) {
+            this.writeValue(generator, data);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void encode(Map<String, Object> data, OutputStream out) throws IOException {
+        try (JsonGenerator generator = this.jsonFactory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.writeValue(generator, data);
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                this.writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object element : (Collection<?>) value) {
+                this.writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+}
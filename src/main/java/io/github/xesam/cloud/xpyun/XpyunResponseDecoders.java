@@ -0,0 +1,95 @@
+package io.github.xesam.cloud.xpyun;
+
+import com.fasterxml.jackson.core.JsonParser;
+import io.github.xesam.cloud.simple.JsonReaders;
+import io.github.xesam.cloud.simple.ResponseDecoder;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
+
+import java.io.IOException;
+
+/**
+ * 芯烨响应 {"code":..,"msg":..,"serverExecutedTime":..,"data":..} 的流式解码器
+ */
+final class XpyunResponseDecoders {
+    private XpyunResponseDecoders() {
+    }
+
+    static void registerTo(StreamingResponseParser parser) {
+        parser.register(BoolResponse.class, p -> decode(p, new BoolResponse(), JsonReaders::readBoolean))
+                .register(IntResponse.class, p -> decode(p, new IntResponse(), JsonReaders::readInteger))
+                .register(StringResponse.class, p -> decode(p, new StringResponse(), JsonReaders::readString))
+                .register(DevicesResponse.class, p -> decode(p, new DevicesResponse(), XpyunResponseDecoders::decodeDevices))
+                .register(DevicesOrderStatResponse.class, p -> decode(p, new DevicesOrderStatResponse(), XpyunResponseDecoders::decodeDevicesOrderStat));
+    }
+
+    private static <T, R extends VendorResponse<T>> R decode(JsonParser parser, R response, ResponseDecoder<T> dataDecoder) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "code":
+                    response.code = JsonReaders.readInt(parser);
+                    break;
+                case "msg":
+                    response.msg = JsonReaders.readString(parser);
+                    break;
+                case "serverExecutedTime":
+                    response.serverExecutedTime = JsonReaders.readInt(parser);
+                    break;
+                case "data":
+                    response.data = dataDecoder.decode(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return response;
+    }
+
+    private static DevicesResponse.Result decodeDevices(JsonParser parser) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        DevicesResponse.Result result = new DevicesResponse.Result();
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "success":
+                    result.success = JsonReaders.readStringList(parser);
+                    break;
+                case "fail":
+                    result.fail = JsonReaders.readStringList(parser);
+                    break;
+                case "failMsg":
+                    result.failMsg = JsonReaders.readStringList(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return result;
+    }
+
+    private static DevicesOrderStatResponse.Result decodeDevicesOrderStat(JsonParser parser) throws IOException {
+        if (!JsonReaders.startObject(parser)) {
+            return null;
+        }
+        DevicesOrderStatResponse.Result result = new DevicesOrderStatResponse.Result();
+        String field;
+        while ((field = JsonReaders.nextField(parser)) != null) {
+            switch (field) {
+                case "printed":
+                    result.printed = JsonReaders.readInt(parser);
+                    break;
+                case "waiting":
+                    result.waiting = JsonReaders.readInt(parser);
+                    break;
+                default:
+                    JsonReaders.skip(parser);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,292 @@
+package io.github.xesam.cloud.simple;
+
+import io.github.xesam.cloud.AsyncRequestClient;
+import io.github.xesam.cloud.CloudResponse;
+import io.github.xesam.cloud.Deadline;
+import io.github.xesam.cloud.RequestBody;
+import io.github.xesam.cloud.ResponseHandler;
+import io.github.xesam.cloud.StreamingRequestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 基于 JDK java.net.http.HttpClient 的 RequestClient，不依赖 httpclient5。
+ * 优先使用 HTTP/2，厂商不支持时由 JDK 自动回退到 HTTP/1.1
+ */
+public class JdkRequestClient implements StreamingRequestClient {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded; charset=UTF-8";
+    private static final ResponseHandler<String> STRING_HANDLER = content -> new String(content.readAllBytes(), StandardCharsets.UTF_8);
+
+    private final HttpClient client;
+    private final AsyncRequestClient<String> asyncRequestClient = new JdkAsyncRequestClient();
+
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public JdkRequestClient() {
+        this(CloudExecutors.getDefault());
+    }
+
+    /**
+     * @param executor 异步请求与响应处理使用的执行器，可以在多个 JdkRequestClient 之间共享
+     */
+    public JdkRequestClient(Executor executor) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * 共享同一个 HttpClient 的异步客户端
+     */
+    public AsyncRequestClient<String> getAsyncRequestClient() {
+        return this.asyncRequestClient;
+    }
+
+    private static URI createUri(String url, Map<String, String> params) {
+        String query = FormEncoder.local().writeQuery(params).toAsciiString();
+        if (query.isEmpty()) {
+            return URI.create(url);
+        }
+        return URI.create(url + (url.contains("?") ? "&" : "?") + query);
+    }
+
+    /**
+     * BodyPublisher 可能在其他线程上读取数据，这里复制出编码结果，不能引用线程内复用的缓冲
+     */
+    private static HttpRequest.BodyPublisher formPublisher(Map<String, String> formBody) {
+        return HttpRequest.BodyPublishers.ofByteArray(FormEncoder.local().writeForm(formBody).toByteArray());
+    }
+
+    /**
+     * 当前线程绑定了截止时间时，以剩余时间作为超时，可以长于默认的 5 秒
+     */
+    private static Duration timeout() {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return TIMEOUT;
+        }
+        return Duration.ofNanos(Math.max(1, deadline.remainingNanos()));
+    }
+
+    private static boolean isDeadlineExceeded() {
+        Deadline deadline = Deadline.current();
+        return deadline != null && deadline.isExpired();
+    }
+
+    private static HttpRequest.Builder newBuilder(URI uri, Map<String, String> headers, boolean formBody) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout());
+        if (headers != null) {
+            headers.forEach(builder::header);
+        }
+        if (formBody && (headers == null || !headers.containsKey("Content-Type"))) {
+            builder.header("Content-Type", FORM_CONTENT_TYPE);
+        }
+        return builder;
+    }
+
+    private static HttpRequest createGet(String url, Map<String, String> params, Map<String, String> headers) {
+        return newBuilder(createUri(url, params), headers, false).GET().build();
+    }
+
+    private static HttpRequest createPost(String url, String body, Map<String, String> headers) {
+        return newBuilder(URI.create(url), headers, false)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static HttpRequest createPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return newBuilder(URI.create(url), headers, true)
+                .POST(formPublisher(formBody))
+                .build();
+    }
+
+    /**
+     * BodyPublisher 可能在其他线程上读取数据，这里不能使用线程内复用的缓冲
+     */
+    private static HttpRequest createPost(String url, RequestBody body, Map<String, String> headers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            body.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return newBuilder(URI.create(url), headers, false)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(out.toByteArray()))
+                .build();
+    }
+
+    private static HttpRequest createDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        return newBuilder(createUri(url, params), headers, false).DELETE().build();
+    }
+
+    private static HttpRequest createPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return newBuilder(URI.create(url), headers, true)
+                .method("PATCH", formPublisher(formBody))
+                .build();
+    }
+
+    /**
+     * JDK 的连接超时是 HttpTimeoutException 的子类，需要在通用的 IO 异常之前判断；
+     * 其余异常使用不引用 httpclient5 的 FailReasons.ofJdk，没有 httpclient5 时也可以使用
+     */
+    private static CloudResponse.FailReason failReason(Throwable e) {
+        if (e instanceof HttpConnectTimeoutException) {
+            return CloudResponse.FailReason.NOT_SENT;
+        }
+        return FailReasons.ofJdk(e);
+    }
+
+    private <R> CloudResponse<R> send(Supplier<HttpRequest> requestSupplier, ResponseHandler<R> handler) {
+        HttpRequest request;
+        try {
+            request = requestSupplier.get();
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getCause().getMessage());
+        }
+        return send(request, handler);
+    }
+
+    private <R> CloudResponse<R> send(HttpRequest request, ResponseHandler<R> handler) {
+        if (isDeadlineExceeded()) {
+            return FailReasons.ofDeadlineExceeded();
+        }
+        try {
+            HttpResponse<InputStream> httpResponse = this.client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream content = httpResponse.body()) {
+                int statusCode = httpResponse.statusCode();
+                if (statusCode != 200) {
+                    return CloudResponse.ofFail("StatusCode is " + statusCode, FailReasons.ofStatus(statusCode));
+                }
+                return CloudResponse.ofSuccess(handler.handle(content));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CloudResponse.ofFail(e.getMessage(), failReason(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CloudResponse.ofFail(e.getMessage());
+        }
+    }
+
+    @Override
+    public CloudResponse<String> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+        return send(createGet(url, params, headers), STRING_HANDLER);
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, String body, Map<String, String> headers) {
+        return send(createPost(url, body, headers), STRING_HANDLER);
+    }
+
+    @Override
+    public CloudResponse<String> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return send(createPost(url, formBody, headers), STRING_HANDLER);
+    }
+
+    @Override
+    public CloudResponse<String> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+        return send(createDelete(url, params, headers), STRING_HANDLER);
+    }
+
+    @Override
+    public CloudResponse<String> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+        return send(createPatch(url, formBody, headers), STRING_HANDLER);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpGet(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(createGet(url, params, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, String body, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(createPost(url, body, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(createPost(url, formBody, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPost(String url, RequestBody body, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(() -> createPost(url, body, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpDelete(String url, Map<String, String> params, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(createDelete(url, params, headers), handler);
+    }
+
+    @Override
+    public <R> CloudResponse<R> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers, ResponseHandler<R> handler) {
+        return send(createPatch(url, formBody, headers), handler);
+    }
+
+    private final class JdkAsyncRequestClient implements AsyncRequestClient<String> {
+
+        private CompletableFuture<CloudResponse<String>> sendAsync(HttpRequest request) {
+            if (isDeadlineExceeded()) {
+                return CompletableFuture.completedFuture(FailReasons.ofDeadlineExceeded());
+            }
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                    .handle((httpResponse, throwable) -> {
+                        if (throwable != null) {
+                            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                            return CloudResponse.ofFail(cause.getMessage(), failReason(cause));
+                        }
+                        int statusCode = httpResponse.statusCode();
+                        if (statusCode != 200) {
+                            return CloudResponse.ofFail("StatusCode is " + statusCode, FailReasons.ofStatus(statusCode));
+                        }
+                        return CloudResponse.ofSuccess(httpResponse.body());
+                    });
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpGet(String url, Map<String, String> params, Map<String, String> headers) {
+            return sendAsync(createGet(url, params, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPost(String url, String body, Map<String, String> headers) {
+            return sendAsync(createPost(url, body, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPost(String url, Map<String, String> formBody, Map<String, String> headers) {
+            return sendAsync(createPost(url, formBody, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpDelete(String url, Map<String, String> params, Map<String, String> headers) {
+            return sendAsync(createDelete(url, params, headers));
+        }
+
+        @Override
+        public CompletableFuture<CloudResponse<String>> httpPatch(String url, Map<String, String> formBody, Map<String, String> headers) {
+            return sendAsync(createPatch(url, formBody, headers));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.feie.FeieCloud;
+import io.github.xesam.cloud.spyun.SpyunCloud;
+import io.github.xesam.cloud.xpyun.XpyunCloud;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class AsyncCloudTest {
+
+    private static final String TEST_APP_ID = "test_id";
+    private static final String TEST_SECRET = "test_secret";
+
+    private static AsyncRequestClient<String> getMockAsyncRequestClient(CloudResponse<String> response) {
+        AsyncRequestClient<String> requestClient = mock(AsyncRequestClient.class);
+        CompletableFuture<CloudResponse<String>> future = CompletableFuture.completedFuture(response);
+        when(requestClient.httpPost(anyString(), anyString(), anyMap())).thenReturn(future);
+        when(requestClient.httpPost(anyString(), anyMap(), anyMap())).thenReturn(future);
+        when(requestClient.httpGet(anyString(), anyMap(), anyMap())).thenReturn(future);
+        when(requestClient.httpDelete(anyString(), anyMap(), anyMap())).thenReturn(future);
+        when(requestClient.httpPatch(anyString(), anyMap(), anyMap())).thenReturn(future);
+        return requestClient;
+    }
+
+    private static Order getMockOrder() {
+        Order order = new Order();
+        order.setContent("this is order content");
+        order.setCopies(3);
+        return order;
+    }
+
+    @Test
+    public void when_feie_print_async_then_sign_and_parse_like_sync() {
+        AsyncRequestClient<String> requestClient = getMockAsyncRequestClient(CloudResponse.ofSuccess("{\"msg\":\"ok\",\"ret\":0,\"data\":\"this_is_order_id\",\"serverExecutedTime\":6}"));
+        FeieCloud cloud = new FeieCloud(new CloudAuth(TEST_APP_ID, TEST_SECRET));
+        cloud.setCloudClock(() -> 1_000_000_000);
+        cloud.setAsyncRequestClient(requestClient);
+        CloudResponse<Order> cloudResponse = cloud.async().printMsgOrder(new Device("01234"), getMockOrder()).join();
+        assertTrue(cloudResponse.isSuccess());
+        assertThat(cloudResponse.getSuccessEntity().getId(), equalTo("this_is_order_id"));
+        verify(requestClient).httpPost(
+                eq("https://api.feieyun.cn/Api/Open/"),
+                Mockito.<Map<String, String>>argThat(body -> {
+                    assertThat(body.get("apiname"), equalTo("Open_printMsg"));
+                    assertThat(body.get("sig"), equalTo("c92c63ca5be6d9d31c71a8cc7e6140d59f79a9af"));
+                    return true;
+                }),
+                anyMap()
+        );
+    }
+
+    @Test
+    public void when_xpyun_query_order_async_then_parse_like_sync() {
+        AsyncRequestClient<String> requestClient = getMockAsyncRequestClient(CloudResponse.ofSuccess("{\"code\":0,\"msg\":\"ok\",\"data\":true}"));
+        XpyunCloud cloud = new XpyunCloud(new CloudAuth(TEST_APP_ID, TEST_SECRET));
+        cloud.setAsyncRequestClient(requestClient);
+        CloudResponse<Order> cloudResponse = cloud.async().queryOrder(getMockOrder().setId("this_is_order_id")).join();
+        assertTrue(cloudResponse.isSuccess());
+        assertTrue(cloudResponse.getSuccessEntity().isPrinted());
+    }
+
+    @Test
+    public void when_spyun_network_error_async_then_fail_with_network_reason() {
+        AsyncRequestClient<String> requestClient = getMockAsyncRequestClient(CloudResponse.ofFail("404"));
+        SpyunCloud cloud = new SpyunCloud(new CloudAuth(TEST_APP_ID, TEST_SECRET));
+        cloud.setAsyncRequestClient(requestClient);
+        CloudResponse<Device> cloudResponse = cloud.async().queryDevice(new Device("01234")).join();
+        assertFalse(cloudResponse.isSuccess());
+        assertThat(cloudResponse.getFailMessage(), containsString("404"));
+        verify(requestClient).httpGet(eq("https://open.spyun.net/v1/printer/info"), anyMap(), anyMap());
+    }
+}
@@ -0,0 +1,253 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.CachingCloudApi;
+import io.github.xesam.cloud.support.FileDeviceOrderStatStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class CachingCloudApiTest {
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicLong online = new AtomicLong(1);
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private CloudApi delegate;
+    private CachingCloudApi cloudApi;
+
+    @Before
+    public void setUp() {
+        delegate = mock(CloudApi.class);
+        when(delegate.queryDevice(any(Device.class))).thenAnswer(invocation -> {
+            Device device = invocation.getArgument(0);
+            return CloudResponse.ofSuccess(online.get() == 1 ? device.markOnline() : device.markOffline());
+        });
+        when(delegate.queryDeviceOrders(any(Device.class), any(QueryOption.class))).thenAnswer(invocation -> {
+            Device device = invocation.getArgument(0);
+            QueryOption queryOption = invocation.getArgument(1);
+            return CloudResponse.ofSuccess(new DeviceOrderStat(device.getSn(), queryOption.getDate(), 10, 2));
+        });
+        cloudApi = new CachingCloudApi(delegate)
+                .setTtl(30, TimeUnit.SECONDS)
+                .setRefreshAfter(20, TimeUnit.SECONDS)
+                .setExecutor(Runnable::run)
+                .setTicker(now::get);
+    }
+
+    @Test
+    public void when_within_ttl_then_hit_cache() {
+        cloudApi.queryDevice(new Device("01234"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Device device = new Device("01234");
+        CloudResponse<Device> response = cloudApi.queryDevice(device);
+        assertThat(response.getSuccessEntity(), sameInstance(device));
+        assertThat(device.isOnline(), is(true));
+        verify(delegate, times(1)).queryDevice(any(Device.class));
+        assertThat(cloudApi.getHitCount(), equalTo(1L));
+        assertThat(cloudApi.getMissCount(), equalTo(1L));
+    }
+
+    @Test
+    public void when_past_refresh_after_then_return_cached_and_refresh() {
+        cloudApi.queryDevice(new Device("01234"));
+        online.set(0);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(25));
+        Device device = new Device("01234");
+        cloudApi.queryDevice(device);
+        assertThat(device.isOnline(), is(true));
+        assertThat(cloudApi.getRefreshCount(), equalTo(1L));
+        Device refreshed = new Device("01234");
+        cloudApi.queryDevice(refreshed);
+        assertThat(refreshed.isOnline(), is(false));
+        verify(delegate, times(2)).queryDevice(any(Device.class));
+    }
+
+    @Test
+    public void when_expired_then_query_vendor() {
+        cloudApi.queryDevice(new Device("01234"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        cloudApi.queryDevice(new Device("01234"));
+        verify(delegate, times(2)).queryDevice(any(Device.class));
+        assertThat(cloudApi.getMissCount(), equalTo(2L));
+    }
+
+    @Test
+    public void when_update_success_then_invalidate() {
+        when(delegate.updateDevice(any(Device.class))).thenReturn(CloudResponse.ofSuccess(true));
+        when(delegate.clearDeviceOrders(any(Device.class))).thenReturn(CloudResponse.ofFail("fail"));
+        cloudApi.queryDevice(new Device("01234"));
+        cloudApi.clearDeviceOrders(new Device("01234"));
+        assertThat(cloudApi.size(), equalTo(1));
+        cloudApi.updateDevice(new Device("01234"));
+        assertThat(cloudApi.size(), equalTo(0));
+    }
+
+    @Test
+    public void when_other_device_invalidated_during_load_then_keep_result() {
+        when(delegate.queryDevice(any(Device.class))).thenAnswer(invocation -> {
+            Device device = invocation.getArgument(0);
+            cloudApi.invalidate(new Device(device.getSn().equals("B") ? "A" : device.getSn()));
+            return CloudResponse.ofSuccess(device.markOnline());
+        });
+        cloudApi.queryDevice(new Device("B"));
+        assertThat(cloudApi.size(), equalTo(1));
+        cloudApi.queryDevice(new Device("C"));
+        assertThat(cloudApi.size(), equalTo(1));
+        cloudApi.queryDevice(new Device("B"));
+        verify(delegate, times(2)).queryDevice(any(Device.class));
+    }
+
+    @Test
+    public void when_fail_then_not_cached() {
+        when(delegate.queryDevice(any(Device.class))).thenReturn(CloudResponse.ofFail("fail"));
+        cloudApi.queryDevice(new Device("01234"));
+        assertThat(cloudApi.size(), equalTo(0));
+    }
+
+    @Test
+    public void when_over_maximum_size_then_evict_least_recently_used() {
+        cloudApi.setMaximumSize(2);
+        cloudApi.queryDevice(new Device("1"));
+        cloudApi.queryDevice(new Device("2"));
+        cloudApi.queryDevice(new Device("1"));
+        cloudApi.queryDevice(new Device("3"));
+        assertThat(cloudApi.size(), equalTo(2));
+        cloudApi.queryDevice(new Device("1"));
+        assertThat(cloudApi.getHitCount(), equalTo(2L));
+        cloudApi.queryDevice(new Device("2"));
+        assertThat(cloudApi.getMissCount(), equalTo(4L));
+    }
+
+    private static QueryOption daysAgo(int days) {
+        return new QueryOption().setDate(LocalDate.now(CachingCloudApi.VENDOR_ZONE_ID).minusDays(days));
+    }
+
+    @Test
+    public void when_history_date_then_cache_forever() {
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(1));
+        now.addAndGet(TimeUnit.DAYS.toNanos(30));
+        CloudResponse<DeviceOrderStat> response = cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(1));
+        assertThat(response.getSuccessEntity().getPrintedCount(), equalTo(10));
+        verify(delegate, times(1)).queryDeviceOrders(any(Device.class), any(QueryOption.class));
+        assertThat(cloudApi.getHistoryOrderStatCount(), equalTo(1));
+    }
+
+    @Test
+    public void when_today_then_cache_with_ttl() {
+        cloudApi.setOrderStatTtl(10, TimeUnit.SECONDS);
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+        verify(delegate, times(1)).queryDeviceOrders(any(Device.class), any(QueryOption.class));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+        verify(delegate, times(2)).queryDeviceOrders(any(Device.class), any(QueryOption.class));
+        assertThat(cloudApi.getHistoryOrderStatCount(), equalTo(0));
+    }
+
+    @Test
+    public void when_vendor_day_not_over_then_not_history() {
+        long shanghaiLateNight = ZonedDateTime.of(2024, 5, 1, 23, 30, 0, 0, ZoneId.of("Asia/Shanghai")).toEpochSecond();
+        cloudApi.setCloudClock(() -> shanghaiLateNight).setOrderStatTtl(10, TimeUnit.SECONDS);
+        cloudApi.queryDeviceOrders(new Device("01234"), new QueryOption().setDate("2024-05-01"));
+        assertThat(cloudApi.getHistoryOrderStatCount(), equalTo(0));
+
+        cloudApi.setZoneId(ZoneId.of("Pacific/Kiritimati"));
+        cloudApi.queryDeviceOrders(new Device("01234"), new QueryOption().setDate("2024-05-01"));
+        assertThat(cloudApi.getHistoryOrderStatCount(), equalTo(1));
+    }
+
+    @Test
+    public void when_clear_orders_then_keep_history() {
+        when(delegate.clearDeviceOrders(any(Device.class))).thenReturn(CloudResponse.ofSuccess(true));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(1));
+        cloudApi.clearDeviceOrders(new Device("01234"));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+        cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(1));
+        verify(delegate, times(2)).queryDeviceOrders(any(Device.class), argThat(option -> daysAgo(0).getDate().equals(option.getDate())));
+        verify(delegate, times(3)).queryDeviceOrders(any(Device.class), any(QueryOption.class));
+    }
+
+    @Test
+    public void when_store_then_reload_history_from_file() throws Exception {
+        Path file = temporaryFolder.getRoot().toPath().resolve("orders.tsv");
+        try (FileDeviceOrderStatStore store = new FileDeviceOrderStatStore(file)) {
+            cloudApi.setOrderStatStore(store);
+            cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(2));
+            cloudApi.queryDeviceOrders(new Device("01234"), daysAgo(0));
+            assertThat(store.size(), equalTo(1));
+        }
+        try (FileDeviceOrderStatStore store = new FileDeviceOrderStatStore(file)) {
+            CloudApi other = mock(CloudApi.class);
+            CachingCloudApi reloaded = new CachingCloudApi(other).setOrderStatStore(store);
+            CloudResponse<DeviceOrderStat> response = reloaded.queryDeviceOrders(new Device("01234"), daysAgo(2));
+            assertThat(response.getSuccessEntity().getPrintedCount(), equalTo(10));
+            assertThat(response.getSuccessEntity().getWaitingCount(), equalTo(2));
+            verify(other, never()).queryDeviceOrders(any(Device.class), any(QueryOption.class));
+        }
+    }
+
+    private void mockOrders(String... printedIds) {
+        Set<String> printed = new HashSet<>(Arrays.asList(printedIds));
+        when(delegate.queryOrder(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            return CloudResponse.ofSuccess(printed.contains(order.getId()) ? order.markPrinted() : order.markWaiting());
+        });
+    }
+
+    @Test
+    public void when_order_printed_then_never_query_again() {
+        mockOrders("printed");
+        cloudApi.queryOrder(new Order().setId("printed"));
+        now.addAndGet(TimeUnit.HOURS.toNanos(12));
+        Order order = new Order().setId("printed");
+        assertThat(cloudApi.queryOrder(order).getSuccessEntity().isPrinted(), is(true));
+        assertThat(order.isPrinted(), is(true));
+        verify(delegate, times(1)).queryOrder(any(Order.class));
+    }
+
+    @Test
+    public void when_order_waiting_then_cache_with_ttl() {
+        mockOrders();
+        cloudApi.setWaitingOrderTtl(5, TimeUnit.SECONDS);
+        cloudApi.queryOrder(new Order().setId("waiting"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        assertThat(cloudApi.queryOrder(new Order().setId("waiting")).getSuccessEntity().isPrinted(), is(false));
+        verify(delegate, times(1)).queryOrder(any(Order.class));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        cloudApi.queryOrder(new Order().setId("waiting"));
+        verify(delegate, times(2)).queryOrder(any(Order.class));
+    }
+
+    @Test
+    public void when_order_table_full_then_evict_earliest_expiry() {
+        mockOrders();
+        cloudApi.setMaximumOrderSize(1000).setWaitingOrderTtl(1, TimeUnit.HOURS);
+        for (int i = 0; i < 5000; i++) {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+            cloudApi.queryOrder(new Order().setId("order_" + i));
+        }
+        assertThat(cloudApi.getOrderStatusCount(), lessThanOrEqualTo(1000));
+        cloudApi.queryOrder(new Order().setId("order_4999"));
+        verify(delegate, times(5000)).queryOrder(any(Order.class));
+        cloudApi.queryOrder(new Order().setId("order_0"));
+        verify(delegate, times(5001)).queryOrder(any(Order.class));
+    }
+}
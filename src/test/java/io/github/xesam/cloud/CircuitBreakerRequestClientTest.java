@@ -0,0 +1,136 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.CircuitBreaker;
+import io.github.xesam.cloud.support.CircuitBreakerOption;
+import io.github.xesam.cloud.support.CircuitBreakerRequestClient;
+import org.junit.Before;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class CircuitBreakerRequestClientTest {
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> events = new ArrayList<>();
+    private RequestClient<String> delegate;
+    private CircuitBreakerRequestClient client;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        delegate = mock(RequestClient.class);
+        client = new CircuitBreakerRequestClient(delegate, new CircuitBreakerOption()
+                .setWindowSize(10)
+                .setMinimumCalls(4)
+                .setFailureRateThreshold(50)
+                .setSlowCallDuration(1, TimeUnit.SECONDS)
+                .setOpenDuration(10, TimeUnit.SECONDS)
+                .setHalfOpenCalls(2))
+                .setTicker(now::get)
+                .addListener((breaker, from, to) -> events.add(breaker.getName() + ":" + from + "->" + to));
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            client.httpGet("https://api.feieyun.cn/Api/Open/", null, null);
+        }
+    }
+
+    @Test
+    public void when_failure_rate_exceeded_then_open_and_fail_fast() {
+        when(delegate.httpGet(anyString(), any(), any())).thenReturn(CloudResponse.ofFail("timeout", CloudResponse.FailReason.AMBIGUOUS));
+        fail(4);
+        assertThat(client.getCircuitBreaker("https://api.feieyun.cn").getState(), equalTo(CircuitBreaker.State.OPEN));
+        CloudResponse<String> response = client.httpGet("https://api.feieyun.cn/Api/Open/", null, null);
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.CIRCUIT_OPEN));
+        verify(delegate, times(4)).httpGet(anyString(), any(), any());
+        assertThat(events, Matchers.contains("api.feieyun.cn:CLOSED->OPEN"));
+    }
+
+    @Test
+    public void when_vendor_error_then_not_counted() {
+        when(delegate.httpGet(anyString(), any(), any())).thenReturn(CloudResponse.ofFail("StatusCode is 400", CloudResponse.FailReason.HTTP_STATUS));
+        fail(10);
+        assertThat(client.getCircuitBreaker("https://api.feieyun.cn").getState(), equalTo(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void when_slow_then_open() {
+        when(delegate.httpGet(anyString(), any(), any())).thenAnswer(invocation -> {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            return CloudResponse.ofSuccess("ok");
+        });
+        fail(4);
+        assertThat(client.getCircuitBreaker("https://api.feieyun.cn").getState(), equalTo(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void when_half_open_probes_succeed_then_close() {
+        when(delegate.httpGet(anyString(), any(), any())).thenReturn(CloudResponse.ofFail("refused", CloudResponse.FailReason.NOT_SENT));
+        fail(4);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        when(delegate.httpGet(anyString(), any(), any())).thenReturn(CloudResponse.ofSuccess("ok"));
+        assertThat(client.httpGet("https://api.feieyun.cn/Api/Open/", null, null).isSuccess(), is(true));
+        assertThat(client.getCircuitBreaker("https://api.feieyun.cn").getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        assertThat(client.httpGet("https://api.feieyun.cn/Api/Open/", null, null).isSuccess(), is(true));
+        assertThat(events, Matchers.contains("api.feieyun.cn:CLOSED->OPEN", "api.feieyun.cn:OPEN->HALF_OPEN", "api.feieyun.cn:HALF_OPEN->CLOSED"));
+    }
+
+    @Test
+    public void when_half_open_probes_fail_then_reopen() {
+        when(delegate.httpGet(anyString(), any(), any())).thenReturn(CloudResponse.ofFail("StatusCode is 502", CloudResponse.FailReason.SERVER_ERROR));
+        fail(4);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        fail(3);
+        assertThat(client.getCircuitBreaker("https://api.feieyun.cn").getState(), equalTo(CircuitBreaker.State.OPEN));
+        verify(delegate, times(5)).httpGet(anyString(), any(), any());
+    }
+
+    @Test
+    public void when_call_permitted_while_closed_finishes_in_half_open_then_not_counted_as_probe() {
+        CircuitBreaker breaker = client.getCircuitBreaker("https://api.feieyun.cn");
+        CircuitBreaker.Permit slowCall = breaker.tryAcquire();
+        assertThat(slowCall.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        for (int i = 0; i < 4; i++) {
+            breaker.onResult(breaker.tryAcquire(), 0, true);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertThat(probe.getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        breaker.onResult(slowCall, 0, false);
+        breaker.onResult(probe, 0, false);
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        breaker.onResult(breaker.tryAcquire(), 0, false);
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void when_other_host_then_not_affected() {
+        when(delegate.httpGet(ArgumentMatchers.contains("feieyun"), any(), any())).thenReturn(CloudResponse.ofFail("timeout", CloudResponse.FailReason.AMBIGUOUS));
+        when(delegate.httpGet(ArgumentMatchers.contains("xpyun"), any(), any())).thenReturn(CloudResponse.ofSuccess("ok"));
+        fail(4);
+        assertThat(client.httpGet("https://open.xpyun.net/api/openapi", null, null).isSuccess(), is(true));
+    }
+
+    @Test
+    public void when_delegate_not_streaming_then_handle_string() {
+        when(delegate.httpPost(anyString(), anyMap(), any())).thenReturn(CloudResponse.ofSuccess("{\"ret\":0}"));
+        CloudResponse<String> response = client.httpPost("https://api.feieyun.cn/Api/Open/", new HashMap<>(), null,
+                content -> new BufferedReader(new InputStreamReader(content)).readLine());
+        assertThat(response.getSuccessEntity(), equalTo("{\"ret\":0}"));
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.CloudExecutors;
+import io.github.xesam.cloud.simple.ExecutorAsyncCloud;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CloudExecutorsTest {
+
+    @Test
+    public void when_fan_out_then_keep_input_order() {
+        List<CloudResponse<String>> responses = CloudExecutors.fanOut(Arrays.asList("a", "b", "c"), item -> CloudResponse.ofSuccess(item + item));
+        assertThat(responses, hasSize(3));
+        assertThat(responses.get(0).getSuccessEntity(), equalTo("aa"));
+        assertThat(responses.get(1).getSuccessEntity(), equalTo("bb"));
+        assertThat(responses.get(2).getSuccessEntity(), equalTo("cc"));
+    }
+
+    @Test
+    public void when_fan_out_call_throws_then_fail_only_that_item() {
+        List<CloudResponse<String>> responses = CloudExecutors.fanOut(Arrays.asList("a", "b"), item -> {
+            if (item.equals("b")) {
+                throw new CloudException("boom");
+            }
+            return CloudResponse.ofSuccess(item);
+        });
+        assertTrue(responses.get(0).isSuccess());
+        assertFalse(responses.get(1).isSuccess());
+        assertThat(responses.get(1).getFailMessage(), containsString("boom"));
+    }
+
+    @Test
+    public void when_fan_out_with_parallelism_then_bound_concurrent_calls() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> items = Collections.nCopies(40, "a");
+        List<CloudResponse<String>> responses = CloudExecutors.fanOut(CloudExecutors.getDefault(), items, 3, item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return CloudResponse.ofSuccess(item);
+        });
+        assertThat(responses, hasSize(40));
+        assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+    }
+
+    @Test
+    public void when_executor_rejects_then_run_on_caller() {
+        List<CloudResponse<String>> responses = CloudExecutors.fanOut(runnable -> {
+            throw new RejectedExecutionException();
+        }, Arrays.asList("a", "b"), 4, item -> CloudResponse.ofSuccess(item));
+        assertThat(responses.get(0).getSuccessEntity(), equalTo("a"));
+        assertThat(responses.get(1).getSuccessEntity(), equalTo("b"));
+    }
+
+    @Test
+    public void when_async_on_executor_then_delegate_to_blocking_api() {
+        CloudApi cloudApi = mock(CloudApi.class);
+        Order order = new Order().setId("this_is_order_id");
+        when(cloudApi.queryOrder(any(Order.class))).thenReturn(CloudResponse.ofSuccess(order.markPrinted()));
+        AsyncCloudApi asyncCloudApi = new ExecutorAsyncCloud(cloudApi, CloudExecutors.getDefault());
+        CloudResponse<Order> response = asyncCloudApi.queryOrder(order).join();
+        assertTrue(response.getSuccessEntity().isPrinted());
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.CoalescingCloudApi;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CoalescingCloudApiTest {
+
+    private static void waitFor(CoalescingCloudApi cloudApi, long coalescedCount) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cloudApi.getCoalescedCount() < coalescedCount && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void when_same_device_queried_concurrently_then_share_one_call() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryDevice(any(Device.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            Device device = invocation.getArgument(0);
+            return CloudResponse.ofSuccess(device.markOnline().setStatus(Device.Status.ANORMAL));
+        });
+        CoalescingCloudApi cloudApi = new CoalescingCloudApi(delegate);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Device> devices = new ArrayList<>();
+            List<Future<CloudResponse<Device>>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Device device = new Device("01234");
+                devices.add(device);
+                futures.add(executor.submit(() -> cloudApi.queryDevice(device)));
+            }
+            waitFor(cloudApi, 4);
+            release.countDown();
+            for (int i = 0; i < 5; i++) {
+                CloudResponse<Device> response = futures.get(i).get(5, TimeUnit.SECONDS);
+                assertThat(response.getSuccessEntity(), sameInstance(devices.get(i)));
+                assertThat(devices.get(i).isOnline(), is(true));
+                assertThat(devices.get(i).getStatus(), equalTo(Device.Status.ANORMAL));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(delegate, times(1)).queryDevice(any(Device.class));
+        assertThat(cloudApi.getCallCount(), equalTo(1L));
+        assertThat(cloudApi.getCoalescedCount(), equalTo(4L));
+        assertThat(cloudApi.getHitRatio(), closeTo(0.8, 0.0001));
+    }
+
+    @Test
+    public void when_spyun_device_queried_concurrently_then_follower_gets_same_fields() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryDevice(any(Device.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            Device device = invocation.getArgument(0);
+            device.setName("快餐前台").setCardno("460001234567890").setStatus(Device.Status.NORMAL).markOnline();
+            device.setCutMode(Device.CutMode.AutoCut);
+            return CloudResponse.ofSuccess(device);
+        });
+        CoalescingCloudApi cloudApi = new CoalescingCloudApi(delegate);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Device leader = new Device("01234");
+            Device follower = new Device("01234");
+            Future<CloudResponse<Device>> leaderFuture = executor.submit(() -> cloudApi.queryDevice(leader));
+            assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+            Future<CloudResponse<Device>> followerFuture = executor.submit(() -> cloudApi.queryDevice(follower));
+            waitFor(cloudApi, 1);
+            release.countDown();
+            assertThat(leaderFuture.get(5, TimeUnit.SECONDS).isSuccess(), is(true));
+            assertThat(followerFuture.get(5, TimeUnit.SECONDS).getSuccessEntity(), sameInstance(follower));
+            assertThat(follower.getName(), equalTo("快餐前台"));
+            assertThat(follower.getCardno(), equalTo("460001234567890"));
+            assertThat(follower.getCutMode(), equalTo(Device.CutMode.AutoCut));
+            assertThat(follower.isOnline(), is(true));
+        } finally {
+            executor.shutdown();
+        }
+        verify(delegate, times(1)).queryDevice(any(Device.class));
+    }
+
+    @Test
+    public void when_leader_throws_error_then_release_waiting_calls() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryOrder(any(Order.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IOException("boom");
+        });
+        CoalescingCloudApi cloudApi = new CoalescingCloudApi(delegate);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CloudResponse<Order>> leader = executor.submit(() -> cloudApi.queryOrder(new Order().setId("order_id")));
+            assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+            Future<CloudResponse<Order>> follower = executor.submit(() -> cloudApi.queryOrder(new Order().setId("order_id")));
+            waitFor(cloudApi, 1);
+            release.countDown();
+            CloudResponse<Order> response = follower.get(5, TimeUnit.SECONDS);
+            assertThat(response.isSuccess(), is(false));
+            assertThat(response.getFailMessage(), containsString("boom"));
+            try {
+                leader.get(5, TimeUnit.SECONDS);
+                fail("leader should rethrow");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IOException.class));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void when_calls_do_not_overlap_then_each_goes_to_vendor() {
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryOrder(any(Order.class))).thenAnswer(invocation -> CloudResponse.ofSuccess(((Order) invocation.getArgument(0)).markPrinted()));
+        CoalescingCloudApi cloudApi = new CoalescingCloudApi(delegate);
+        cloudApi.queryOrder(new Order().setId("order_id"));
+        cloudApi.queryOrder(new Order().setId("order_id"));
+        verify(delegate, times(2)).queryOrder(any(Order.class));
+        assertThat(cloudApi.getHitRatio(), equalTo(0.0));
+    }
+
+    @Test
+    public void when_mutating_then_pass_through() {
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.updateDevice(any(Device.class))).thenReturn(CloudResponse.ofSuccess(true));
+        CoalescingCloudApi cloudApi = new CoalescingCloudApi(delegate);
+        Device device = new Device("01234");
+        assertThat(cloudApi.updateDevice(device).getSuccessEntity(), is(true));
+        assertThat(cloudApi.updateDevice(device).getSuccessEntity(), is(true));
+        verify(delegate, times(2)).updateDevice(device);
+        assertThat(cloudApi.getCallCount(), equalTo(0L));
+    }
+}
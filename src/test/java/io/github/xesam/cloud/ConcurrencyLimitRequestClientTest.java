@@ -0,0 +1,125 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.ConcurrencyLimitOption;
+import io.github.xesam.cloud.support.ConcurrencyLimitRequestClient;
+import io.github.xesam.cloud.support.ConcurrencyLimiter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitRequestClientTest {
+    private static final String URL = "https://api.feieyun.cn/Api/Open/";
+
+    private final AtomicLong now = new AtomicLong();
+    private RequestClient<String> delegate;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        delegate = mock(RequestClient.class);
+    }
+
+    private void respondAfter(long millis, CloudResponse<String> response) {
+        when(delegate.httpGet(anyString(), any(), any())).thenAnswer(invocation -> {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+            return response;
+        });
+    }
+
+    @Test
+    public void when_latency_grows_then_decrease_limit() {
+        ConcurrencyLimitRequestClient client = new ConcurrencyLimitRequestClient(delegate, new ConcurrencyLimitOption().setInitialLimit(20))
+                .setTicker(now::get);
+        respondAfter(50, CloudResponse.ofSuccess("ok"));
+        client.httpGet(URL, null, null);
+        ConcurrencyLimiter limiter = client.getLimiter(URL);
+        assertThat(limiter.getRttNoLoadNanos(), equalTo(TimeUnit.MILLISECONDS.toNanos(50)));
+        assertThat(limiter.getLimit(), equalTo(20));
+
+        respondAfter(2000, CloudResponse.ofSuccess("ok"));
+        for (int i = 0; i < 5; i++) {
+            client.httpGet(URL, null, null);
+        }
+        assertThat(limiter.getLimit(), equalTo(15));
+
+        respondAfter(5000, CloudResponse.ofFail("timeout", CloudResponse.FailReason.AMBIGUOUS));
+        client.httpGet(URL, null, null);
+        assertThat(limiter.getLimit(), equalTo(13));
+        assertThat(limiter.getInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void when_latency_stable_and_busy_then_increase_limit() {
+        ConcurrencyLimitRequestClient client = new ConcurrencyLimitRequestClient(delegate, new ConcurrencyLimitOption().setInitialLimit(1).setMaxLimit(2))
+                .setTicker(now::get);
+        respondAfter(50, CloudResponse.ofSuccess("ok"));
+        for (int i = 0; i < 3; i++) {
+            client.httpGet(URL, null, null);
+        }
+        assertThat(client.getLimiter(URL).getLimit(), equalTo(2));
+    }
+
+    @Test
+    public void when_not_sent_then_ignore_sample() {
+        ConcurrencyLimitRequestClient client = new ConcurrencyLimitRequestClient(delegate).setTicker(now::get);
+        respondAfter(5000, CloudResponse.ofFail("connect refused", CloudResponse.FailReason.NOT_SENT));
+        client.httpGet(URL, null, null);
+        ConcurrencyLimiter limiter = client.getLimiter(URL);
+        assertThat(limiter.getLimit(), equalTo(20));
+        assertThat(limiter.getRttNoLoadNanos(), equalTo(0L));
+        assertThat(limiter.getInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void when_fail_without_reason_then_release_permit() {
+        ConcurrencyLimitRequestClient client = new ConcurrencyLimitRequestClient(delegate).setTicker(now::get);
+        respondAfter(50, CloudResponse.ofFail("unknown", null));
+        CloudResponse<String> response = client.httpGet(URL, null, null);
+        assertThat(response.isSuccess(), is(false));
+        assertThat(client.getLimiter(URL).getInFlight(), equalTo(0));
+    }
+
+    @Test
+    public void when_limit_reached_then_queue_then_reject() throws Exception {
+        ConcurrencyLimitRequestClient client = new ConcurrencyLimitRequestClient(delegate, new ConcurrencyLimitOption()
+                .setInitialLimit(1)
+                .setMaxQueueSize(1)
+                .setMaxWait(50, TimeUnit.MILLISECONDS));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.httpGet(anyString(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return CloudResponse.ofSuccess("ok");
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CloudResponse<String>> first = executor.submit(() -> client.httpGet(URL, null, null));
+            assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+            CloudResponse<String> rejected = client.httpGet(URL, null, null);
+            assertThat(rejected.getFailReason(), equalTo(CloudResponse.FailReason.LOCALLY_REJECTED));
+            ConcurrencyLimiter limiter = client.getLimiter(URL);
+            assertThat(limiter.getRejectedCount(), equalTo(1L));
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).isSuccess(), is(true));
+            assertThat(client.httpGet(URL, null, null).isSuccess(), is(true));
+            verify(delegate, times(2)).httpGet(anyString(), any(), any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package io.github.xesam.cloud;
 
 import io.github.xesam.cloud.feie.FeieCloud;
+import io.github.xesam.cloud.simple.AimdOption;
+import io.github.xesam.cloud.simple.RateLimiter;
+import io.github.xesam.cloud.simple.TimeoutPolicy;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -216,6 +222,62 @@ public class FeieCloudTest {
         assertTrue(cloudResponse.getSuccessEntity());
     }
 
+    private static List<Device> getMockDevices(int size) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            devices.add(new Device(String.format("%05d", i)).setKey("abcde"));
+        }
+        return devices;
+    }
+
+    @Test
+    public void when_add_devices_then_chunk_by_vendor_limit() {
+        RequestClient<String> requestClient = getMockRequestClientWithNetworkFail();
+        FeieCloud cloud = getMockCloud(requestClient);
+        List<CloudResponse<Device>> responses = cloud.addDevices(getMockDevices(150));
+        assertThat(responses, hasSize(150));
+        verify(requestClient, times(1)).httpPost(
+                ensureRequestUrlMatched(),
+                Mockito.<Map<String, String>>argThat(body -> body.get("printerContent") != null && body.get("printerContent").split("\n").length == 100),
+                ensureRequestHeadersMatched()
+        );
+        verify(requestClient, times(1)).httpPost(
+                ensureRequestUrlMatched(),
+                Mockito.<Map<String, String>>argThat(body -> body.get("printerContent") != null && body.get("printerContent").split("\n").length == 50),
+                ensureRequestHeadersMatched()
+        );
+    }
+
+    @Test
+    public void when_add_devices_then_return_outcome_per_device() {
+        CloudResponse<String> requestResponse = CloudResponse.ofSuccess("{\"ret\":0,\"data\":{\"ok\":[\"00000# abcde\"],\"no\":[\"00001# abcde （错误：识别码不正确）\"]}}");
+        RequestClient<String> requestClient = getMockRequestClient(requestResponse);
+        FeieCloud cloud = getMockCloud(requestClient);
+        List<Device> devices = getMockDevices(3);
+        List<CloudResponse<Device>> responses = cloud.addDevices(devices);
+        assertTrue(responses.get(0).isSuccess());
+        assertThat(responses.get(0).getSuccessEntity(), sameInstance(devices.get(0)));
+        assertFalse(responses.get(1).isSuccess());
+        assertThat(responses.get(1).getFailMessage(), containsString("识别码不正确"));
+        assertFalse(responses.get(2).isSuccess());
+        assertThat(responses.get(2).getFailMessage(), containsString("00002"));
+    }
+
+    @Test
+    public void when_delete_devices_then_join_snlist() {
+        CloudResponse<String> requestResponse = CloudResponse.ofSuccess("{\"ret\":0,\"data\":{\"ok\":[\"00000成功\",\"00001成功\"],\"no\":[]}}");
+        RequestClient<String> requestClient = getMockRequestClient(requestResponse);
+        FeieCloud cloud = getMockCloud(requestClient);
+        List<CloudResponse<Device>> responses = cloud.deleteDevices(getMockDevices(2));
+        assertTrue(responses.get(0).isSuccess());
+        assertTrue(responses.get(1).isSuccess());
+        verify(requestClient).httpPost(
+                ensureRequestUrlMatched(),
+                Mockito.<Map<String, String>>argThat(body -> "00000-00001".equals(body.get("snlist"))),
+                ensureRequestHeadersMatched()
+        );
+    }
+
     @Test
     public void when_query_device_then_request_params_are_matched() {
         RequestClient<String> requestClient = getMockRequestClientWithNetworkFail();
@@ -524,4 +586,74 @@ public class FeieCloudTest {
         assertTrue(cloudResponse.isSuccess());
         assertTrue(cloudResponse.getSuccessEntity());
     }
+
+    @Test
+    public void when_rate_limited_then_fail_without_request() {
+        RequestClient<String> requestClient = getMockRequestClient(CloudResponse.ofSuccess("{\"msg\":\"ok\",\"ret\":0,\"data\":\"order_id\",\"serverExecutedTime\":6}"));
+        FeieCloud cloud = getMockCloud(requestClient);
+        cloud.setRateLimiter(new RateLimiter(1, 10).setLimit("Open_printMsg", 1, 1).setMaxWait(0, TimeUnit.SECONDS));
+        assertTrue(cloud.printMsgOrder(getMockDevice(), getMockOrder()).isSuccess());
+        CloudResponse<Order> response = cloud.printMsgOrder(getMockDevice(), getMockOrder());
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.LOCALLY_REJECTED));
+        verify(requestClient, times(1)).httpPost(anyString(), anyMap(), anyMap());
+        assertTrue(cloud.printLabelOrder(getMockDevice(), getMockOrder()).isSuccess());
+        verify(requestClient, times(2)).httpPost(anyString(), anyMap(), anyMap());
+    }
+
+    @Test
+    public void when_locally_rejected_then_keep_rate() {
+        RequestClient<String> requestClient = getMockRequestClient(CloudResponse.ofFail("concurrency limit exceeded", CloudResponse.FailReason.LOCALLY_REJECTED));
+        FeieCloud cloud = getMockCloud(requestClient);
+        RateLimiter rateLimiter = new RateLimiter(10, 10).setAimd(new AimdOption());
+        cloud.setRateLimiter(rateLimiter);
+        CloudResponse<Order> response = cloud.printMsgOrder(getMockDevice(), getMockOrder());
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.LOCALLY_REJECTED));
+        assertThat(rateLimiter.getBuckets().values().iterator().next().getRate(), closeTo(10, 0.001));
+    }
+
+    @Test
+    public void when_vendor_throttled_then_fail_with_throttled_reason() {
+        RequestClient<String> requestClient = getMockRequestClient(CloudResponse.ofSuccess("{\"msg\":\"请求过于频繁，请稍后再试\",\"ret\":1002,\"data\":null,\"serverExecutedTime\":1}"));
+        FeieCloud cloud = getMockCloud(requestClient);
+        RateLimiter rateLimiter = new RateLimiter(10, 10).setAimd(new AimdOption());
+        cloud.setRateLimiter(rateLimiter);
+        CloudResponse<Order> response = cloud.printMsgOrder(getMockDevice(), getMockOrder());
+        assertFalse(response.isSuccess());
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.THROTTLED));
+        assertThat(rateLimiter.getBuckets().values().iterator().next().getRate(), closeTo(5, 0.001));
+    }
+
+    @Test
+    public void when_timeout_policy_set_then_bind_deadline_to_request() {
+        RequestClient<String> requestClient = mock(RequestClient.class);
+        List<Deadline> deadlines = new ArrayList<>();
+        when(requestClient.httpPost(anyString(), anyMap(), anyMap())).thenAnswer(invocation -> {
+            deadlines.add(Deadline.current());
+            return CloudResponse.ofSuccess("{\"msg\":\"ok\",\"ret\":0,\"data\":\"order_id\",\"serverExecutedTime\":6}");
+        });
+        FeieCloud cloud = getMockCloud(requestClient);
+        TimeoutPolicy timeoutPolicy = new TimeoutPolicy().setBounds(100, 800, TimeUnit.MILLISECONDS);
+        cloud.setTimeoutPolicy(timeoutPolicy);
+        assertTrue(cloud.printMsgOrder(getMockDevice(), getMockOrder()).isSuccess());
+        assertThat(deadlines.get(0).remaining(TimeUnit.MILLISECONDS), lessThanOrEqualTo(800L));
+
+        Deadline callerDeadline = Deadline.after(50, TimeUnit.MILLISECONDS);
+        assertTrue(callerDeadline.call(() -> cloud.printMsgOrder(getMockDevice(), getMockOrder())).isSuccess());
+        assertThat(deadlines.get(1), sameInstance(callerDeadline));
+    }
+
+    @Test
+    public void when_vendor_returns_429_then_record_latency() {
+        RequestClient<String> requestClient = getMockRequestClient(CloudResponse.ofFail("HTTP 429", CloudResponse.FailReason.THROTTLED));
+        FeieCloud cloud = getMockCloud(requestClient);
+        TimeoutPolicy timeoutPolicy = spy(new TimeoutPolicy());
+        cloud.setTimeoutPolicy(timeoutPolicy);
+        assertThat(cloud.printMsgOrder(getMockDevice(), getMockOrder()).getFailReason(), equalTo(CloudResponse.FailReason.THROTTLED));
+        verify(timeoutPolicy).record(eq("Open_printMsg"), anyLong());
+
+        cloud.setRateLimiter(new RateLimiter(1, 1).setLimit("Open_printMsg", 1, 1).setMaxWait(0, TimeUnit.SECONDS));
+        cloud.printMsgOrder(getMockDevice(), getMockOrder());
+        assertThat(cloud.printMsgOrder(getMockDevice(), getMockOrder()).getFailReason(), equalTo(CloudResponse.FailReason.LOCALLY_REJECTED));
+        verify(timeoutPolicy, times(2)).record(eq("Open_printMsg"), anyLong());
+    }
 }
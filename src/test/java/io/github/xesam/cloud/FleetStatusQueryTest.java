@@ -0,0 +1,80 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.FleetSnapshot;
+import io.github.xesam.cloud.support.FleetStatusQuery;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FleetStatusQueryTest {
+
+    private static List<Device> getMockDevices(int size) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            devices.add(new Device(String.valueOf(i)));
+        }
+        return devices;
+    }
+
+    private static CloudApi getMockCloud(AtomicInteger running, AtomicInteger maxRunning) {
+        CloudApi cloudApi = mock(CloudApi.class);
+        when(cloudApi.queryDevice(any(Device.class))).thenAnswer(invocation -> {
+            Device device = invocation.getArgument(0);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } finally {
+                running.decrementAndGet();
+            }
+            int sn = Integer.parseInt(device.getSn());
+            if (sn % 10 == 9) {
+                return CloudResponse.ofFail("timeout");
+            }
+            return CloudResponse.ofSuccess(sn % 2 == 0 ? device.markOnline() : device.markOffline().setStatus(Device.Status.ANORMAL));
+        });
+        return cloudApi;
+    }
+
+    @Test
+    public void when_query_then_bounded_by_concurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        FleetStatusQuery query = new FleetStatusQuery(getMockCloud(running, maxRunning))
+                .setConcurrency(3)
+                .setExecutor(Executors.newCachedThreadPool());
+        FleetSnapshot snapshot = query.queryAll(getMockDevices(40));
+        assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+        assertThat(query.getInFlight(), equalTo(0));
+        assertThat(snapshot.getStatuses(), hasSize(40));
+        assertThat(snapshot.getFailedCount(), equalTo(4));
+        assertThat(snapshot.getOnlineCount(), equalTo(20));
+        assertThat(snapshot.getOfflineCount(), equalTo(16));
+    }
+
+    @Test
+    public void when_query_then_stream_results_and_keep_caller_devices() {
+        List<Device> devices = getMockDevices(10);
+        ConcurrentLinkedQueue<DeviceStatus> streamed = new ConcurrentLinkedQueue<>();
+        FleetSnapshot snapshot = new FleetStatusQuery(getMockCloud(new AtomicInteger(), new AtomicInteger()))
+                .query(devices, streamed::add)
+                .join();
+        assertThat(streamed, hasSize(10));
+        for (int i = 0; i < 10; i++) {
+            assertThat(snapshot.getStatuses().get(i).getDeviceSn(), equalTo(String.valueOf(i)));
+            assertThat(devices.get(i).isOnline(), is(false));
+            assertThat(devices.get(i).getStatus(), equalTo(Device.Status.NORMAL));
+        }
+        assertThat(snapshot.getStatuses().get(0).isOnline(), is(true));
+        assertThat(snapshot.getStatuses().get(9).getFailMessage(), equalTo("timeout"));
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.CloudMethod;
+import io.github.xesam.cloud.support.HedgingAsyncCloudApi;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class HedgingAsyncCloudApiTest {
+    private AsyncCloudApi delegate;
+
+    @Before
+    public void setUp() {
+        delegate = mock(AsyncCloudApi.class);
+    }
+
+    private static Order order(String id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+
+    private static Order printedAt(String printTime) {
+        return order("1").markPrinted().setPrintTime(printTime);
+    }
+
+    @Test
+    public void when_first_attempt_slow_then_hedge_wins_and_first_cancelled() {
+        CompletableFuture<CloudResponse<Order>> slow = new CompletableFuture<>();
+        when(delegate.queryOrder(any())).thenReturn(slow, CompletableFuture.completedFuture(CloudResponse.ofSuccess(printedAt("hedged"))));
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(1)
+                .setInitialDelay(10, TimeUnit.MILLISECONDS)
+                .setMinDelay(1, TimeUnit.MILLISECONDS);
+
+        Order query = order("1");
+        CloudResponse<Order> response = api.queryOrder(query).join();
+        assertThat(response.getSuccessEntity(), sameInstance(query));
+        assertThat(query.isPrinted(), is(true));
+        assertThat(query.getPrintTime(), equalTo("hedged"));
+        assertThat(slow.isCancelled(), is(true));
+        assertThat(api.getHedgeCount(), equalTo(1L));
+        assertThat(api.getHedgeWinCount(), equalTo(1L));
+        verify(delegate, times(2)).queryOrder(any());
+    }
+
+    @Test
+    public void when_first_attempt_fast_then_no_hedge() throws InterruptedException {
+        when(delegate.queryDevice(any())).thenReturn(CompletableFuture.completedFuture(CloudResponse.ofSuccess(new Device("sn"))));
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(1)
+                .setInitialDelay(10, TimeUnit.MILLISECONDS);
+        assertThat(api.queryDevice(new Device("sn")).join().isSuccess(), is(true));
+        Thread.sleep(50);
+        assertThat(api.getHedgeCount(), equalTo(0L));
+        verify(delegate, times(1)).queryDevice(any());
+    }
+
+    @Test
+    public void when_hedge_budget_exhausted_then_wait_for_first_attempt() throws InterruptedException {
+        CompletableFuture<CloudResponse<Order>> slow = new CompletableFuture<>();
+        when(delegate.queryOrder(any())).thenReturn(slow);
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(0.5)
+                .setInitialDelay(10, TimeUnit.MILLISECONDS)
+                .setMinDelay(1, TimeUnit.MILLISECONDS);
+        CompletableFuture<CloudResponse<Order>> result = api.queryOrder(order("1"));
+        Thread.sleep(50);
+        assertThat(result.isDone(), is(false));
+        slow.complete(CloudResponse.ofSuccess(printedAt("first")));
+        assertThat(result.join().getSuccessEntity().getPrintTime(), equalTo("first"));
+        assertThat(api.getHedgeCount(), equalTo(0L));
+        verify(delegate, times(1)).queryOrder(any());
+    }
+
+    @Test
+    public void when_first_attempt_fails_then_wait_for_hedge() {
+        CompletableFuture<CloudResponse<Order>> first = new CompletableFuture<>();
+        CompletableFuture<CloudResponse<Order>> second = new CompletableFuture<>();
+        when(delegate.queryOrder(any())).thenReturn(first, second);
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(1)
+                .setInitialDelay(1, TimeUnit.MILLISECONDS)
+                .setMinDelay(1, TimeUnit.MILLISECONDS);
+        CompletableFuture<CloudResponse<Order>> result = api.queryOrder(order("1"));
+        verify(delegate, timeout(1000).times(2)).queryOrder(any());
+        first.complete(CloudResponse.ofFail("reset", CloudResponse.FailReason.AMBIGUOUS));
+        assertThat(result.isDone(), is(false));
+        second.complete(CloudResponse.ofSuccess(printedAt("second")));
+        assertThat(result.join().getSuccessEntity().getPrintTime(), equalTo("second"));
+    }
+
+    @Test
+    public void when_hedge_wins_then_late_primary_not_modify_caller_order() {
+        CompletableFuture<CloudResponse<Order>> slow = new CompletableFuture<>();
+        Order[] primaryOrder = new Order[1];
+        when(delegate.queryOrder(any())).thenAnswer(invocation -> {
+            if (primaryOrder[0] == null) {
+                primaryOrder[0] = invocation.getArgument(0);
+                return slow;
+            }
+            Order order = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(CloudResponse.ofSuccess(order.markPrinted().setPrintTime("hedged")));
+        });
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(1)
+                .setInitialDelay(10, TimeUnit.MILLISECONDS)
+                .setMinDelay(1, TimeUnit.MILLISECONDS);
+
+        Order query = order("1");
+        assertThat(api.queryOrder(query).join().getSuccessEntity(), sameInstance(query));
+        assertThat(primaryOrder[0], not(sameInstance(query)));
+        primaryOrder[0].markWaiting().setPrintTime("late");
+        assertThat(query.isPrinted(), is(true));
+        assertThat(query.getPrintTime(), equalTo("hedged"));
+    }
+
+    @Test
+    public void when_hedge_wins_then_record_cancelled_primary_latency() {
+        when(delegate.queryOrder(any())).thenAnswer(invocation -> {
+            if (mockingDetails(delegate).getInvocations().size() % 2 == 1) {
+                return new CompletableFuture<>();
+            }
+            return CompletableFuture.completedFuture(CloudResponse.ofSuccess(printedAt("hedged")));
+        });
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate)
+                .setMaxHedgeRatio(1)
+                .setInitialDelay(10, TimeUnit.MILLISECONDS)
+                .setMinDelay(1, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 20; i++) {
+            api.queryOrder(order("1")).join();
+        }
+        assertThat(api.getHedgeWinCount(), equalTo(20L));
+        assertThat(api.getHedgeDelayMillis(CloudMethod.QUERY_ORDER), greaterThanOrEqualTo(9L));
+    }
+
+    @Test
+    public void when_print_then_never_hedge() {
+        CompletableFuture<CloudResponse<Order>> printed = CompletableFuture.completedFuture(CloudResponse.ofSuccess(order("1")));
+        when(delegate.printMsgOrder(any(), any())).thenReturn(printed);
+        HedgingAsyncCloudApi api = new HedgingAsyncCloudApi(delegate).setMaxHedgeRatio(1);
+        assertThat(api.printMsgOrder(new Device("sn"), order("1")), sameInstance(printed));
+        assertThat(api.isHedged(CloudMethod.PRINT_MSG_ORDER), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void when_hedge_write_method_then_throw() {
+        new HedgingAsyncCloudApi(delegate).setHedged(CloudMethod.PRINT_LABEL_ORDER, true);
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.Http2RequestClient;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.ssl.BasicServerTlsStrategy;
+
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class Http2RequestClientTest {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static SSLContext serverSslContext;
+    private static SSLContext clientSslContext;
+
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final Set<String> protocols = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger handled = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private HttpAsyncServer server;
+    private Http2RequestClient client;
+
+    @BeforeClass
+    public static void createKeyStore() throws Exception {
+        File keyStore = new File(folder.getRoot(), "localhost.p12");
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/keytool").getPath(),
+                "-genkeypair", "-alias", "localhost", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost",
+                "-keystore", keyStore.getPath(), "-storetype", "PKCS12",
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        assertThat(process.waitFor(), equalTo(0));
+        serverSslContext = SSLContexts.custom().loadKeyMaterial(keyStore, PASSWORD, PASSWORD).build();
+        clientSslContext = SSLContexts.custom().loadTrustMaterial(keyStore, PASSWORD).build();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 启动一个延迟 200ms 返回 ok 的 https 服务，返回服务地址；h2 为 false 时服务不支持 ALPN，只能使用 HTTP/1.1
+     */
+    private String startServer(boolean h2) throws Exception {
+        server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(h2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                .setTlsStrategy(h2 ? new H2ServerTlsStrategy(serverSslContext) : new BasicServerTlsStrategy(serverSslContext))
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, Void>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(entityDetails == null ? null : new DiscardingEntityConsumer<>());
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, Void> message, ResponseTrigger responseTrigger, HttpContext context) {
+                        HttpCoreContext coreContext = HttpCoreContext.adapt(context);
+                        connections.add(coreContext.getEndpointDetails().getRemoteAddress());
+                        protocols.add(String.valueOf(coreContext.getProtocolVersion()));
+                        handled.incrementAndGet();
+                        scheduler.schedule(() -> {
+                            try {
+                                responseTrigger.submitResponse(new BasicResponseProducer(200, "ok"), context);
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                            }
+                        }, 200, TimeUnit.MILLISECONDS);
+                    }
+                })
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTPS).get();
+        return "https://localhost:" + ((InetSocketAddress) endpoint.getAddress()).getPort() + "/Api/Open/";
+    }
+
+    private List<CloudResponse<String>> postConcurrently(String url, int count) {
+        List<CompletableFuture<CloudResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HashMap<String, String> form = new HashMap<>();
+            form.put("sn", "sn" + i);
+            futures.add(client.getAsyncRequestClient().httpPost(url, form, null));
+        }
+        List<CloudResponse<String>> responses = new ArrayList<>();
+        for (CompletableFuture<CloudResponse<String>> future : futures) {
+            responses.add(future.join());
+        }
+        return responses;
+    }
+
+    @Test
+    public void when_server_supports_h2_then_concurrent_requests_share_one_connection() throws Exception {
+        String url = startServer(true);
+        client = new Http2RequestClient(20, 200, clientSslContext);
+
+        for (CloudResponse<String> response : postConcurrently(url, 10)) {
+            assertThat(response.getSuccessEntity(), equalTo("ok"));
+        }
+        assertThat(handled.get(), equalTo(10));
+        assertThat(connections, hasSize(1));
+        assertThat(protocols, contains("HTTP/2.0"));
+        assertThat(client.getTotalStats().getAvailable(), equalTo(0));
+    }
+
+    @Test
+    public void when_server_only_http1_then_fall_back_without_resending() throws Exception {
+        String url = startServer(false);
+        client = new Http2RequestClient(20, 200, clientSslContext);
+
+        for (CloudResponse<String> response : postConcurrently(url, 4)) {
+            assertThat(response.getSuccessEntity(), equalTo("ok"));
+        }
+        assertThat(handled.get(), equalTo(4));
+        assertThat(protocols, contains("HTTP/1.1"));
+        assertThat(client.isHttp1Host("localhost", Integer.parseInt(url.split("[:/]")[4])), is(true));
+
+        assertThat(client.httpGet(url, null, null).getSuccessEntity(), equalTo("ok"));
+        assertThat(handled.get(), equalTo(5));
+    }
+
+    @Test
+    public void when_no_response_in_sync_timeout_then_ambiguous() throws Exception {
+        String url = startServer(true);
+        client = new Http2RequestClient(20, 200, clientSslContext).setSyncTimeout(50, TimeUnit.MILLISECONDS);
+
+        CloudResponse<String> response = client.httpGet(url, null, null);
+        assertThat(response.isSuccess(), is(false));
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.AMBIGUOUS));
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.JacksonCodec;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JacksonCodecTest {
+
+    public static class Result {
+        public int code;
+        public String msg;
+    }
+
+    @Test
+    public void when_encode_then_write_json_object() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("sn", "01234");
+        data.put("copies", 3);
+        assertThat(JacksonCodec.getDefault().encode(data), equalTo("{\"sn\":\"01234\",\"copies\":3}"));
+    }
+
+    @Test
+    public void when_unknown_fields_then_ignore() throws IOException {
+        String json = "{\"code\":0,\"msg\":\"ok\",\"extra\":{\"a\":[1,2]}}";
+        Result fromString = JacksonCodec.getDefault().parse(json, Result.class);
+        Result fromStream = JacksonCodec.getDefault().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), Result.class);
+        assertThat(fromString.code, equalTo(0));
+        assertThat(fromString.msg, equalTo("ok"));
+        assertThat(fromStream.msg, equalTo("ok"));
+    }
+
+    @Test
+    public void when_invalid_json_then_null() {
+        assertThat(JacksonCodec.getDefault().parse("not json", Result.class), nullValue());
+    }
+}
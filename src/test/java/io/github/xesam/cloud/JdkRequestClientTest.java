@@ -0,0 +1,127 @@
+package io.github.xesam.cloud;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.xesam.cloud.simple.JdkRequestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * JdkRequestClient 的实现位于 META-INF/versions/11，构建时复制到 test-classes，这里测试的是 Java 11+ 的实现
+ */
+public class JdkRequestClientTest {
+    private HttpServer server;
+    private ExecutorService executor;
+    private JdkRequestClient client;
+    private String baseUrl;
+    private volatile String requestQuery;
+    private volatile String requestBody;
+    private volatile String requestContentType;
+    private volatile int statusCode = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requestQuery = exchange.getRequestURI().getRawQuery();
+            requestContentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            requestBody = readAll(exchange.getRequestBody());
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(statusCode, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/Api/Open/";
+        executor = Executors.newFixedThreadPool(2);
+        client = new JdkRequestClient(executor);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> data() {
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("user", "a b*~");
+        data.put("content", "中<BR>");
+        data.put("empty", null);
+        return data;
+    }
+
+    @Test
+    public void when_running_on_java11_then_use_versioned_implementation() {
+        assertThat(JdkRequestClient.isSupported(), is(true));
+    }
+
+    @Test
+    public void when_post_form_then_form_encoded() {
+        CloudResponse<String> response = client.httpPost(baseUrl, data(), null);
+        assertThat(response.getSuccessEntity(), equalTo("ok"));
+        assertThat(requestBody, equalTo("user=a+b*%7E&content=%E4%B8%AD%3CBR%3E&empty="));
+        assertThat(requestContentType, equalTo("application/x-www-form-urlencoded; charset=UTF-8"));
+    }
+
+    @Test
+    public void when_get_with_params_then_query_encoded() {
+        CloudResponse<String> response = client.httpGet(baseUrl + "?sn=1", data(), null);
+        assertThat(response.getSuccessEntity(), equalTo("ok"));
+        assertThat(requestQuery, equalTo("sn=1&user=a%20b%2A~&content=%E4%B8%AD%3CBR%3E&empty="));
+    }
+
+    @Test
+    public void when_async_patch_then_form_encoded() {
+        CloudResponse<String> response = client.getAsyncRequestClient().httpPatch(baseUrl, data(), null).join();
+        assertThat(response.getSuccessEntity(), equalTo("ok"));
+        assertThat(requestBody, equalTo("user=a+b*%7E&content=%E4%B8%AD%3CBR%3E&empty="));
+    }
+
+    @Test
+    public void when_status_429_then_throttled() {
+        statusCode = 429;
+        CloudResponse<String> response = client.httpGet(baseUrl, null, null);
+        assertThat(response.isSuccess(), is(false));
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.THROTTLED));
+        response = client.getAsyncRequestClient().httpGet(baseUrl, null, null).join();
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.THROTTLED));
+    }
+
+    @Test
+    public void when_connection_refused_then_not_sent() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String url = "http://127.0.0.1:" + port + "/";
+        assertThat(client.httpGet(url, null, null).getFailReason(), equalTo(CloudResponse.FailReason.NOT_SENT));
+        assertThat(client.getAsyncRequestClient().httpGet(url, null, null).join().getFailReason(), equalTo(CloudResponse.FailReason.NOT_SENT));
+    }
+}
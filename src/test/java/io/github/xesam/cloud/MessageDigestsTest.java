@@ -0,0 +1,41 @@
+package io.github.xesam.cloud;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MessageDigestsTest {
+
+    @Test
+    public void when_sha1_then_lower_hex() {
+        assertThat(MessageDigests.SHA1("abc"), equalTo("a9993e364706816aba3e25717850c26c9cd0d89d"));
+        assertThat(MessageDigests.SHA1(""), nullValue());
+    }
+
+    @Test
+    public void when_md5_then_upper_hex_of_utf8() {
+        assertThat(MessageDigests.MD5("abc"), equalTo("900150983CD24FB0D6963F7D28E17F72"));
+        assertThat(MessageDigests.MD5("快餐前台"), equalTo(MessageDigests.MD5Hasher().update("快").update("餐前台").toHex()));
+    }
+
+    @Test
+    public void when_prefix_signed_then_same_as_full_message() {
+        MessageDigests.PrefixDigest prefixDigest = MessageDigests.SHA1Prefix("test_idtest_secret");
+        for (long epochSecond : new long[]{0, 9, 10, 1_000_000_000, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertThat(prefixDigest.sign(epochSecond), equalTo(MessageDigests.SHA1("test_idtest_secret" + epochSecond)));
+        }
+        assertThat(prefixDigest.sign("测试😀"), equalTo(MessageDigests.SHA1("test_idtest_secret测试😀")));
+    }
+
+    @Test
+    public void when_message_longer_than_buffer_then_digest_matches() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            builder.append("内容").append(i);
+        }
+        String message = builder.toString();
+        assertThat(MessageDigests.MD5(message), equalTo(MessageDigests.MD5Hasher().update(message.substring(0, 100)).update(message.substring(100)).toHex()));
+        assertThat(MessageDigests.MD5(message), not(equalTo(MessageDigests.MD5(message + "&"))));
+    }
+}
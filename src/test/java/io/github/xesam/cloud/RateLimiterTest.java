@@ -0,0 +1,108 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.AimdOption;
+import io.github.xesam.cloud.simple.RateLimiter;
+import io.github.xesam.cloud.simple.TokenBucket;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RateLimiterTest {
+
+    @Test
+    public void when_burst_used_then_wait_for_refill() {
+        AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        TokenBucket bucket = new TokenBucket(10, 3, now::get);
+        assertThat(bucket.tryAcquire(), is(true));
+        assertThat(bucket.tryAcquire(), is(true));
+        assertThat(bucket.tryAcquire(), is(true));
+        assertThat(bucket.tryAcquire(), is(false));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.tryAcquire(), is(true));
+        assertThat(bucket.tryAcquire(), is(false));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(), is(true));
+        }
+        assertThat(bucket.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void when_wait_allowed_then_block_until_refill() {
+        TokenBucket bucket = new TokenBucket(50, 1);
+        assertThat(bucket.tryAcquire(), is(true));
+        assertThat(bucket.tryAcquire(1, TimeUnit.MILLISECONDS), is(false));
+        long start = System.nanoTime();
+        assertThat(bucket.tryAcquire(1, TimeUnit.SECONDS), is(true));
+        assertThat(System.nanoTime() - start, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    public void when_concurrent_then_never_exceed_burst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (bucket.tryAcquire()) {
+                    acquired.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        assertThat(acquired.get(), equalTo(100));
+    }
+
+    @Test
+    public void when_different_account_or_api_then_separate_buckets() {
+        RateLimiter rateLimiter = new RateLimiter(0.001, 1).setLimit("query", 0.001, 2);
+        assertThat(rateLimiter.tryAcquire("app1", "print"), is(true));
+        assertThat(rateLimiter.tryAcquire("app1", "print"), is(false));
+        assertThat(rateLimiter.tryAcquire("app2", "print"), is(true));
+        assertThat(rateLimiter.tryAcquire("app1", "query"), is(true));
+        assertThat(rateLimiter.tryAcquire("app1", "query"), is(true));
+        assertThat(rateLimiter.tryAcquire("app1", "query"), is(false));
+        assertThat(rateLimiter.getBuckets().keySet(), hasSize(3));
+    }
+
+    @Test
+    public void when_vendor_throttles_then_decrease_and_recover_rate() {
+        AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        RateLimiter rateLimiter = new RateLimiter(10, 10)
+                .setTicker(now::get)
+                .setAimd(new AimdOption().setAdditiveIncrease(1).setCooldown(1, TimeUnit.SECONDS));
+        TokenBucket bucket = rateLimiter.getBucket("app1", "print");
+
+        rateLimiter.onResponse("app1", "print", true);
+        assertThat(bucket.getRate(), closeTo(5, 0.001));
+        assertThat(bucket.getBurst(), equalTo(5));
+        rateLimiter.onResponse("app1", "print", true);
+        assertThat(bucket.getRate(), closeTo(5, 0.001));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        rateLimiter.onResponse("app1", "print", true);
+        assertThat(bucket.getRate(), closeTo(2.5, 0.001));
+
+        for (int i = 0; i < 20; i++) {
+            rateLimiter.onResponse("app1", "print", false);
+        }
+        assertThat(bucket.getRate(), closeTo(10, 0.001));
+        assertThat(bucket.getBurst(), equalTo(10));
+        assertThat(rateLimiter.getBucket("app2", "print").getRate(), closeTo(10, 0.001));
+    }
+
+    @Test
+    public void when_aimd_not_set_then_keep_rate() {
+        RateLimiter rateLimiter = new RateLimiter(10, 10);
+        rateLimiter.onResponse("app1", "print", true);
+        assertThat(rateLimiter.getBucket("app1", "print").getRate(), closeTo(10, 0.001));
+    }
+}
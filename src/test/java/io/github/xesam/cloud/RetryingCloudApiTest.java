@@ -0,0 +1,84 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.support.CloudMethod;
+import io.github.xesam.cloud.support.RetryPolicy;
+import io.github.xesam.cloud.support.RetryingCloudApi;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RetryingCloudApiTest {
+
+    private static RetryingCloudApi getRetryingCloudApi(CloudApi delegate) {
+        RetryingCloudApi cloudApi = new RetryingCloudApi(delegate);
+        for (CloudMethod method : CloudMethod.values()) {
+            cloudApi.getPolicy(method).setBaseDelay(1, TimeUnit.MILLISECONDS).setMaxDelay(5, TimeUnit.MILLISECONDS);
+        }
+        return cloudApi;
+    }
+
+    @Test
+    public void when_read_times_out_then_retry() {
+        CloudApi delegate = mock(CloudApi.class);
+        Device device = new Device("01234");
+        when(delegate.queryDevice(device))
+                .thenReturn(CloudResponse.ofFail("read timed out", CloudResponse.FailReason.AMBIGUOUS))
+                .thenReturn(CloudResponse.ofFail("StatusCode is 503", CloudResponse.FailReason.SERVER_ERROR))
+                .thenReturn(CloudResponse.ofSuccess(device));
+        RetryingCloudApi cloudApi = getRetryingCloudApi(delegate);
+        assertThat(cloudApi.queryDevice(device).isSuccess(), is(true));
+        verify(delegate, times(3)).queryDevice(device);
+        assertThat(cloudApi.getRetryCount(), equalTo(2L));
+    }
+
+    @Test
+    public void when_print_times_out_then_not_resend() {
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.printMsgOrder(any(Device.class), any(Order.class)))
+                .thenReturn(CloudResponse.ofFail("read timed out", CloudResponse.FailReason.AMBIGUOUS));
+        RetryingCloudApi cloudApi = getRetryingCloudApi(delegate);
+        CloudResponse<Order> response = cloudApi.printMsgOrder(new Device("01234"), new Order());
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.AMBIGUOUS));
+        verify(delegate, times(1)).printMsgOrder(any(Device.class), any(Order.class));
+    }
+
+    @Test
+    public void when_print_not_sent_then_resend() {
+        CloudApi delegate = mock(CloudApi.class);
+        Order order = new Order();
+        when(delegate.printMsgOrder(any(Device.class), any(Order.class)))
+                .thenReturn(CloudResponse.ofFail("refused", CloudResponse.FailReason.NOT_SENT))
+                .thenReturn(CloudResponse.ofSuccess(order.setId("order_id")));
+        RetryingCloudApi cloudApi = getRetryingCloudApi(delegate);
+        assertThat(cloudApi.printMsgOrder(new Device("01234"), order).getSuccessEntity().getId(), equalTo("order_id"));
+        verify(delegate, times(2)).printMsgOrder(any(Device.class), any(Order.class));
+    }
+
+    @Test
+    public void when_vendor_rejects_then_not_retry() {
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryOrder(any(Order.class))).thenReturn(CloudResponse.ofFail("order not found"));
+        RetryingCloudApi cloudApi = getRetryingCloudApi(delegate);
+        cloudApi.queryOrder(new Order().setId("order_id"));
+        verify(delegate, times(1)).queryOrder(any(Order.class));
+    }
+
+    @Test
+    public void when_attempts_or_budget_exhausted_then_stop() {
+        CloudApi delegate = mock(CloudApi.class);
+        when(delegate.queryOrder(any(Order.class))).thenReturn(CloudResponse.ofFail("refused", CloudResponse.FailReason.NOT_SENT));
+        RetryingCloudApi cloudApi = getRetryingCloudApi(delegate);
+        cloudApi.setPolicy(CloudMethod.QUERY_ORDER, RetryPolicy.forReads().setMaxAttempts(5).setBaseDelay(1, TimeUnit.MILLISECONDS));
+        assertThat(cloudApi.queryOrder(new Order()).getFailReason(), equalTo(CloudResponse.FailReason.NOT_SENT));
+        verify(delegate, times(5)).queryOrder(any(Order.class));
+
+        cloudApi.setPolicy(CloudMethod.QUERY_ORDER, RetryPolicy.forReads().setMaxAttempts(5).setBaseDelay(50, TimeUnit.MILLISECONDS).setBudget(10, TimeUnit.MILLISECONDS));
+        cloudApi.queryOrder(new Order());
+        verify(delegate, times(6)).queryOrder(any(Order.class));
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.xesam.cloud;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class SignatureCacheTest {
+
+    private static final CloudAuth TEST_AUTH = new CloudAuth("test_id", "test_secret");
+
+    @Test
+    public void when_created_then_owned_by_caller() {
+        SignatureCache cache = SignatureCache.SHA1(TEST_AUTH);
+        assertThat(cache, not(sameInstance(SignatureCache.SHA1(new CloudAuth("test_id", "test_secret")))));
+        assertThat(cache.sign(1_000_000_000), equalTo(SignatureCache.SHA1(new CloudAuth("test_id", "test_secret")).sign(1_000_000_000)));
+    }
+
+    @Test
+    public void when_same_second_then_reuse_signature() {
+        SignatureCache cache = SignatureCache.SHA1(new CloudAuth("test_id", "same_second_secret"));
+        String signature = cache.sign(1_000_000_000);
+        assertThat(signature, equalTo(MessageDigests.SHA1("test_idsame_second_secret1000000000")));
+        assertThat(cache.sign(1_000_000_000), sameInstance(signature));
+    }
+
+    @Test
+    public void when_second_rolls_over_then_sign_again() {
+        SignatureCache cache = SignatureCache.SHA1(new CloudAuth("test_id", "roll_over_secret"));
+        String first = cache.sign(1_000_000_000);
+        String next = cache.sign(1_000_000_001);
+        assertThat(next, equalTo(MessageDigests.SHA1("test_idroll_over_secret1000000001")));
+        assertThat(cache.sign(1_000_000_000), equalTo(first));
+        assertThat(cache.sign(1_000_000_001), sameInstance(next));
+    }
+
+    @Test
+    public void when_concurrent_then_signatures_are_correct() throws Exception {
+        SignatureCache cache = SignatureCache.SHA1(TEST_AUTH);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (long second = 2_000_000_000; second < 2_000_000_200; second++) {
+                        if (!cache.sign(second).equals(MessageDigests.SHA1("test_idtest_secret" + second))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get(), is(true));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package io.github.xesam.cloud;
 
+import io.github.xesam.cloud.feie.FeieCloud;
+import io.github.xesam.cloud.simple.PoolOption;
+import io.github.xesam.cloud.simple.PoolingRequestClient;
 import io.github.xesam.cloud.simple.SimpleRequestClient;
+import io.github.xesam.cloud.simple.TimeoutPolicy;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -29,6 +42,19 @@ public class SimpleRequestClientTest {
         return httpClient;
     }
 
+    private static CloseableHttpClient getMockCloseableHttpClient(String responseBody) {
+        CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+        try {
+            CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+            when(response.getCode()).thenReturn(200);
+            when(response.getEntity()).thenReturn(new StringEntity(responseBody, ContentType.APPLICATION_JSON));
+            when(httpClient.execute(any(HttpUriRequestBase.class))).thenReturn(response);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return httpClient;
+    }
+
     private Map<String, String> getMockGetData() {
         Map<String, String> params = new HashMap<>();
         params.put("user", "this is user");
@@ -125,6 +151,24 @@ public class SimpleRequestClientTest {
         }));
     }
 
+    @Test
+    public void when_post_form_then_encode_like_url_encoder() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient();
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        Map<String, String> data = new HashMap<>();
+        data.put("content", "<CB>测试 a*b~c&d=😀</CB>");
+        simpleRequestClient.httpPost("https://host", data, getMockHeaders());
+        verify(client).execute(argThat(request -> {
+            try {
+                String body = new BufferedReader(new InputStreamReader(request.getEntity().getContent())).readLine();
+                assertThat(body, equalTo("content=" + URLEncoder.encode("<CB>测试 a*b~c&d=😀</CB>", "UTF-8")));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        }));
+    }
+
     @Test
     public void when_post_json_then_add_json_to_body() throws IOException {
         CloseableHttpClient client = getMockCloseableHttpClient();
@@ -145,4 +189,123 @@ public class SimpleRequestClientTest {
             return true;
         }));
     }
+
+    @Test
+    public void when_post_request_body_then_write_bytes_to_body() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient("{}");
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        simpleRequestClient.httpPost("https://host", out -> out.write("{\"content\":\"测试\"}".getBytes(StandardCharsets.UTF_8)), getMockHeaders(),
+                content -> null);
+        verify(client).execute(argThat(request -> {
+            try {
+                assertThat(request.getMethod(), equalToIgnoringCase("post"));
+                assertThat(request.getEntity().getContentLength(), equalTo((long) "{\"content\":\"测试\"}".getBytes(StandardCharsets.UTF_8).length));
+                String body = new BufferedReader(new InputStreamReader(request.getEntity().getContent(), StandardCharsets.UTF_8)).readLine();
+                assertThat(body, equalTo("{\"content\":\"测试\"}"));
+                assertThat(request.getHeader("header1").getValue(), containsString("this is header1"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        }));
+    }
+
+    @Test
+    public void when_pooling_then_stats_reflect_pool_option() {
+        try (PoolingRequestClient client = new PoolingRequestClient(new PoolOption().setMaxConnPerRoute(8).setMaxConnTotal(64))) {
+            assertThat(client.getTotalStats().getMax(), equalTo(64));
+            assertThat(client.getTotalStats().getLeased(), equalTo(0));
+            assertThat(client.getTotalStats().getPending(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void when_handler_given_then_decode_from_response_stream() {
+        CloseableHttpClient client = getMockCloseableHttpClient("{\"ret\":0,\"msg\":\"ok\"}");
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        CloudResponse<String> response = simpleRequestClient.httpPost("https://host", getMockGetData(), getMockHeaders(),
+                content -> new BufferedReader(new InputStreamReader(content)).readLine());
+        assertThat(response.isSuccess(), is(true));
+        assertThat(response.getSuccessEntity(), equalTo("{\"ret\":0,\"msg\":\"ok\"}"));
+    }
+
+    @Test
+    public void when_fail_then_classify_reason() throws IOException {
+        CloseableHttpClient client = mock(CloseableHttpClient.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(client.execute(any(HttpUriRequestBase.class)))
+                .thenThrow(new ConnectException("refused"))
+                .thenThrow(new SocketTimeoutException("read timed out"))
+                .thenReturn(response);
+        when(response.getCode()).thenReturn(429, 503);
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        assertThat(simpleRequestClient.httpGet("https://host", getMockGetData(), null).getFailReason(), equalTo(CloudResponse.FailReason.NOT_SENT));
+        assertThat(simpleRequestClient.httpGet("https://host", getMockGetData(), null).getFailReason(), equalTo(CloudResponse.FailReason.AMBIGUOUS));
+        assertThat(simpleRequestClient.httpGet("https://host", getMockGetData(), null).getFailReason(), equalTo(CloudResponse.FailReason.THROTTLED));
+        assertThat(simpleRequestClient.httpGet("https://host", getMockGetData(), null).getFailReason(), equalTo(CloudResponse.FailReason.SERVER_ERROR));
+    }
+
+    @Test
+    public void when_deadline_expired_then_not_sent() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient("ok");
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        CloudResponse<String> response = Deadline.after(0, TimeUnit.MILLISECONDS).call(() -> simpleRequestClient.httpGet("https://host", getMockGetData(), null));
+        assertThat(response.getFailReason(), equalTo(CloudResponse.FailReason.NOT_SENT));
+        verify(client, never()).execute(any(HttpUriRequestBase.class));
+    }
+
+    @Test
+    public void when_deadline_set_then_cap_request_timeouts() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient("ok");
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client);
+        CloudResponse<String> response = Deadline.after(300, TimeUnit.MILLISECONDS).call(() -> simpleRequestClient.httpPost("https://host", getMockGetData(), null));
+        assertThat(response.isSuccess(), is(true));
+        ArgumentCaptor<HttpUriRequestBase> captor = ArgumentCaptor.forClass(HttpUriRequestBase.class);
+        verify(client).execute(captor.capture());
+        RequestConfig config = captor.getValue().getConfig();
+        assertThat(config.getResponseTimeout().toMilliseconds(), allOf(greaterThan(0L), lessThanOrEqualTo(300L)));
+        assertThat(config.getConnectionRequestTimeout().toMilliseconds(), lessThanOrEqualTo(300L));
+        assertThat(Deadline.current(), nullValue());
+    }
+
+    @Test
+    public void when_timeout_policy_ceiling_above_default_then_reach_request_config() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient("{\"msg\":\"ok\",\"ret\":0,\"data\":\"order_id\",\"serverExecutedTime\":6}");
+        TimeoutPolicy timeoutPolicy = new TimeoutPolicy()
+                .setBounds(100, 1000, TimeUnit.MILLISECONDS)
+                .setBounds("Open_printMsg", 1, 10, TimeUnit.SECONDS);
+        for (int i = 0; i < 100; i++) {
+            timeoutPolicy.record("Open_printMsg", TimeUnit.MILLISECONDS.toNanos(4000));
+        }
+        FeieCloud cloud = new FeieCloud(new CloudAuth("test_id", "test_secret"));
+        cloud.setRequestClient(new SimpleRequestClient(client));
+        cloud.setTimeoutPolicy(timeoutPolicy);
+        Order order = new Order();
+        order.setContent("content");
+        assertThat(cloud.printMsgOrder(new Device("01234"), order).isSuccess(), is(true));
+
+        ArgumentCaptor<HttpUriRequestBase> captor = ArgumentCaptor.forClass(HttpUriRequestBase.class);
+        verify(client).execute(captor.capture());
+        RequestConfig config = captor.getValue().getConfig();
+        assertThat(config.getResponseTimeout().toMilliseconds(), allOf(greaterThan(5000L), lessThanOrEqualTo(8000L)));
+        assertThat(config.getConnectionRequestTimeout().toMilliseconds(), equalTo(5000L));
+    }
+
+    @Test
+    public void when_custom_default_config_then_keep_other_settings() throws IOException {
+        CloseableHttpClient client = getMockCloseableHttpClient("ok");
+        RequestConfig defaultConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(200, TimeUnit.MILLISECONDS)
+                .setResponseTimeout(1, TimeUnit.SECONDS)
+                .setRedirectsEnabled(false)
+                .build();
+        SimpleRequestClient simpleRequestClient = new SimpleRequestClient(client, defaultConfig);
+        Deadline.after(3, TimeUnit.SECONDS).call(() -> simpleRequestClient.httpGet("https://host", getMockGetData(), null));
+        ArgumentCaptor<HttpUriRequestBase> captor = ArgumentCaptor.forClass(HttpUriRequestBase.class);
+        verify(client).execute(captor.capture());
+        RequestConfig config = captor.getValue().getConfig();
+        assertThat(config.isRedirectsEnabled(), is(false));
+        assertThat(config.getConnectionRequestTimeout().toMilliseconds(), equalTo(200L));
+        assertThat(config.getResponseTimeout().toMilliseconds(), allOf(greaterThan(1000L), lessThanOrEqualTo(3000L)));
+    }
 }
@@ -0,0 +1,89 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.JacksonCodec;
+import io.github.xesam.cloud.simple.JsonReaders;
+import io.github.xesam.cloud.simple.StreamingResponseParser;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StreamingResponseParserTest {
+
+    public static class Result {
+        public int code = -1;
+        public String msg;
+        public List<String> data;
+    }
+
+    private static StreamingResponseParser getParser() {
+        return new StreamingResponseParser(new JacksonCodec()).register(Result.class, parser -> {
+            if (!JsonReaders.startObject(parser)) {
+                return null;
+            }
+            Result result = new Result();
+            String field;
+            while ((field = JsonReaders.nextField(parser)) != null) {
+                switch (field) {
+                    case "code":
+                        result.code = JsonReaders.readInt(parser);
+                        break;
+                    case "msg":
+                        result.msg = JsonReaders.readString(parser);
+                        break;
+                    case "data":
+                        result.data = JsonReaders.readStringList(parser);
+                        break;
+                    default:
+                        JsonReaders.skip(parser);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Test
+    public void when_unknown_fields_then_skip_them() throws IOException {
+        String json = "{\"extra\":{\"a\":[1,{\"b\":2}]},\"code\":\"0\",\"msg\":200,\"data\":[\"a\",\"b\"],\"tail\":[]}";
+        Result fromString = getParser().parse(json, Result.class);
+        Result fromStream = getParser().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), Result.class);
+        for (Result result : new Result[]{fromString, fromStream}) {
+            assertThat(result.code, equalTo(0));
+            assertThat(result.msg, equalTo("200"));
+            assertThat(result.data, contains("a", "b"));
+        }
+    }
+
+    @Test
+    public void when_decoded_then_same_as_databind() {
+        String json = "{\"code\":-2,\"msg\":\"参数错误\",\"data\":null,\"serverExecutedTime\":3}";
+        Result streaming = getParser().parse(json, Result.class);
+        Result databind = new JacksonCodec().parse(json, Result.class);
+        assertThat(streaming.code, equalTo(databind.code));
+        assertThat(streaming.msg, equalTo(databind.msg));
+        assertThat(streaming.data, equalTo(databind.data));
+    }
+
+    @Test
+    public void when_invalid_then_null() {
+        assertThat(getParser().parse("null", Result.class), nullValue());
+        assertThat(getParser().parse("", Result.class), nullValue());
+        assertThat(getParser().parse("[1]", Result.class), nullValue());
+        assertThat(getParser().parse("{\"code\":{}}", Result.class), nullValue());
+    }
+
+    public static class Unregistered {
+        public String msg;
+    }
+
+    @Test
+    public void when_not_registered_then_fallback_to_databind() {
+        Unregistered unregistered = getParser().parse("{\"msg\":\"ok\",\"other\":1}", Unregistered.class);
+        assertThat(unregistered.msg, equalTo("ok"));
+    }
+}
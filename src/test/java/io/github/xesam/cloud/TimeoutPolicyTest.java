@@ -0,0 +1,64 @@
+package io.github.xesam.cloud;
+
+import io.github.xesam.cloud.simple.TimeoutPolicy;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TimeoutPolicyTest {
+
+    private static void record(TimeoutPolicy policy, String apiName, int times, long millis) {
+        for (int i = 0; i < times; i++) {
+            policy.record(apiName, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    @Test
+    public void when_not_enough_samples_then_use_ceiling() {
+        TimeoutPolicy policy = new TimeoutPolicy().setBounds(100, 3000, TimeUnit.MILLISECONDS);
+        record(policy, "query", 5, 50);
+        assertThat(policy.getTimeoutMillis("query"), equalTo(3000L));
+    }
+
+    @Test
+    public void when_latency_recorded_then_follow_percentile_within_bounds() {
+        TimeoutPolicy policy = new TimeoutPolicy()
+                .setBounds(100, 3000, TimeUnit.MILLISECONDS)
+                .setPercentile(0.9)
+                .setMultiplier(2);
+        record(policy, "query", 90, 200);
+        record(policy, "query", 10, 5000);
+        assertThat(policy.getTimeoutMillis("query"), equalTo(400L));
+
+        record(policy, "fast", 100, 10);
+        assertThat(policy.getTimeoutMillis("fast"), equalTo(100L));
+
+        record(policy, "slow", 100, 4000);
+        assertThat(policy.getTimeoutMillis("slow"), equalTo(3000L));
+    }
+
+    @Test
+    public void when_api_bounds_set_then_override_default() {
+        TimeoutPolicy policy = new TimeoutPolicy()
+                .setBounds(100, 1000, TimeUnit.MILLISECONDS)
+                .setBounds("print", 1, 10, TimeUnit.SECONDS);
+        record(policy, "print", 100, 4000);
+        record(policy, "query", 100, 4000);
+        assertThat(policy.getTimeoutMillis("print"), equalTo(8000L));
+        assertThat(policy.getTimeoutMillis("query"), equalTo(1000L));
+    }
+
+    @Test
+    public void when_nested_deadline_then_keep_earlier_one() {
+        Deadline outer = Deadline.after(100, TimeUnit.MILLISECONDS);
+        Deadline inner = Deadline.after(10, TimeUnit.SECONDS);
+        Deadline current = outer.call(() -> inner.call(Deadline::current));
+        assertThat(current, sameInstance(outer));
+        assertThat(inner.call(() -> outer.call(Deadline::current)), sameInstance(outer));
+        assertThat(Deadline.current(), nullValue());
+        assertThat(Deadline.after(0, TimeUnit.MILLISECONDS).isExpired(), is(true));
+    }
+}
@@ -10,6 +10,7 @@ import org.mockito.Mockito;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -238,6 +239,51 @@ public class XpyunCloudTest {
         assertTrue(cloudResponse.getSuccessEntity());
     }
 
+    private static List<Device> getMockDevices(int size) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            devices.add(new Device(String.format("%05d", i)).setName("快餐前台"));
+        }
+        return devices;
+    }
+
+    @Test
+    public void when_add_devices_then_chunk_by_vendor_limit() {
+        RequestClient<String> requestClient = getMockRequestClientWithNetworkFail();
+        XpyunCloud cloud = getMockCloud(requestClient);
+        List<CloudResponse<Device>> responses = cloud.addDevices(getMockDevices(120));
+        assertThat(responses, hasSize(120));
+        assertThat(responses.get(119).getFailMessage(), containsString("404"));
+        verify(requestClient, times(3)).httpPost(ensureRequestUrlMatched("addPrinters"), anyString(), ensureRequestHeadersMatched());
+    }
+
+    @Test
+    public void when_delete_devices_then_return_outcome_per_device() {
+        CloudResponse<String> requestResponse = CloudResponse.ofSuccess("{\"code\":0,\"msg\":\"ok\",\"data\":{\"success\":[\"00000\"],\"fail\":[\"00001\"],\"failMsg\":[\"00001:用户UID不匹配\"]}}");
+        RequestClient<String> requestClient = getMockRequestClient(requestResponse);
+        XpyunCloud cloud = getMockCloud(requestClient);
+        List<CloudResponse<Device>> responses = cloud.deleteDevices(getMockDevices(3));
+        assertTrue(responses.get(0).isSuccess());
+        assertFalse(responses.get(1).isSuccess());
+        assertThat(responses.get(1).getFailMessage(), containsString("用户UID不匹配"));
+        assertFalse(responses.get(2).isSuccess());
+        verify(requestClient).httpPost(
+                ensureRequestUrlMatched("delPrinters"),
+                Mockito.<String>argThat(body -> body.contains("\"snlist\":[\"00000\",\"00001\",\"00002\"]")),
+                ensureRequestHeadersMatched()
+        );
+    }
+
+    @Test
+    public void when_delete_devices_with_overlapping_sn_then_match_exact_sn() {
+        CloudResponse<String> requestResponse = CloudResponse.ofSuccess("{\"code\":0,\"msg\":\"ok\",\"data\":{\"success\":[],\"failMsg\":[\"01234:用户UID不匹配\",\"0123:识别码不正确\"]}}");
+        RequestClient<String> requestClient = getMockRequestClient(requestResponse);
+        XpyunCloud cloud = getMockCloud(requestClient);
+        List<CloudResponse<Device>> responses = cloud.deleteDevices(Arrays.asList(new Device("0123"), new Device("01234")));
+        assertThat(responses.get(0).getFailMessage(), containsString("识别码不正确"));
+        assertThat(responses.get(1).getFailMessage(), containsString("用户UID不匹配"));
+    }
+
     @Test
     public void when_query_device_then_request_params_are_matched() {
         RequestClient<String> requestClient = getMockRequestClientWithNetworkFail();